@@ -25,7 +25,7 @@ json_responses = []
 emulator_is_installed = False
 
 # These will be assigned per analysis file
-global metadata, apkFile, sdkVersion, package, activity, action, intents, start
+global metadata, apkFile, sdkVersion, package, activity, actions, categories, intents, start
 
 
 def parse_file(file_path):  
@@ -37,7 +37,7 @@ def parse_file(file_path):
 
     metadata = {}
     intents = []
-    metadata_pattern = re.compile(r"(apkFile|sdkVersion|package|activity|action):\s*(.+)")
+    metadata_pattern = re.compile(r"(apkFile|sdkVersion|package|activity|actions|action|categories|data):\s*(.+)")
     param_pattern = re.compile(r'([\w.]+)\s*\((\w+)\)\s*:\s*("?[^|\n"]*"?)')
 
     for line in lines:
@@ -191,7 +191,7 @@ def drozer_setup(sdkVersion):
     time.sleep(1)
     os.system("adb shell input tap 975 1800")
 
-def send_drozer_intent(package, sdk_version, activity, action, extra):
+def send_drozer_intent(package, sdk_version, activity, action, categories, extra):
     """Build and send the intent using Drozer."""
     drozer_in_foreground()
     drozer_command = (
@@ -200,6 +200,8 @@ def send_drozer_intent(package, sdk_version, activity, action, extra):
     )
     if action:
         drozer_command += f"--action {action} "
+    if categories:
+        drozer_command += f"--category {' '.join(categories)} "
 
     for item in extra:
         drozer_command += f"--extra {item['type']} {item['name']} {item['value']} "
@@ -207,11 +209,13 @@ def send_drozer_intent(package, sdk_version, activity, action, extra):
     drozer_command += "'"
     get_logs(drozer_command)
 
-def send_adb_intent(package, sdk_version, activity, action, extra):
+def send_adb_intent(package, sdk_version, activity, action, categories, extra):
     """Build and send the intent using ADB."""
     adb_command = f"adb shell am start -n {package}/{activity}"
     if action:
         adb_command += f" -a {action}"
+    for category in categories:
+        adb_command += f" -c {category}"
 
     for item in extra:
         intentType = ''
@@ -248,7 +252,7 @@ def get_pid(package, sdk_version):
 
 def send_intents(apk_path, file_path):
     """Orchestrate the full workflow: boot emulator, install app, send all intent combinations."""
-    global metadata, apkFile, sdkVersion, package, activity, action, intents
+    global metadata, apkFile, sdkVersion, package, activity, actions, categories, intents
     result = parse_file(file_path)
 
     metadata = result['metadata']
@@ -256,7 +260,9 @@ def send_intents(apk_path, file_path):
     sdkVersion = int(metadata['sdkVersion'])
     package = metadata['package']
     activity = metadata['activity']   
-    action = metadata['action']
+    # The paths hold for every action of the intent filters of the activity
+    actions = metadata.get('actions', metadata.get('action', '')).split(", ")
+    categories = metadata['categories'].split(", ") if metadata.get('categories') else []
     intents = result['intents']
 
     if not apk_path.endswith(".apk"):
@@ -306,11 +312,12 @@ def send_intents(apk_path, file_path):
         for item in extra:
             print(f"Extra: {item['name']} ({item['type']}) = {item['value']}")
 
-        if use_drozer:
-            send_drozer_intent(package, sdkVersion, activity, action, extra)
-        else:
-            send_adb_intent(package, sdkVersion, activity, action, extra)
-        time.sleep(1)
+        for action in actions:
+            if use_drozer:
+                send_drozer_intent(package, sdkVersion, activity, action, categories, extra)
+            else:
+                send_adb_intent(package, sdkVersion, activity, action, categories, extra)
+            time.sleep(1)
         
         print("\n" + "-" * 30 + "\n")
 
@@ -0,0 +1,331 @@
+package org.IntentSymbolicExecution;
+
+/**
+ * Options of the analysis, given on the command line after the APK path as {@code --name=value}.
+ * <p>
+ * Every option has a default, but four of them change the output of an analysis started without options compared
+ * with a plain exhaustive enumeration: a method with more than 100000 paths gets a uniform sample of them
+ * ({@code --path-budget}, {@code --over-budget}), the branches that do not influence the Intent-related nodes are
+ * followed through a single arm ({@code --slice}), the paths with contradictory Intent-related branch outcomes are cut
+ * ({@code --prune-infeasible}), and the APKs whose exported activities never read the Intent are skipped
+ * ({@code --dex-triage}).
+ */
+public class AnalysisOptions {
+
+    /**
+     * How paths are enumerated when a method has more paths than the budget.
+     */
+    public enum OverBudgetMode {
+        /**
+         * Enumerate in depth-first order and stop after {@link #getPathBudget()} paths.
+         */
+        CAPPED,
+        /**
+         * Draw {@link #getPathBudget()} paths uniformly at random.
+         */
+        SAMPLED
+    }
+
+    /**
+     * Order in which the paths of a method are enumerated.
+     */
+    public enum Enumeration {
+        /**
+         * All paths in depth-first order, within the path budget.
+         */
+        EXHAUSTIVE,
+        /**
+         * Paths in order of new coverage of the Intent-related branch outcomes and edges, see {@link CoveragePathEnumerator},
+         * until the path budget, the time budget or full coverage.
+         */
+        COVERAGE
+    }
+
+    /**
+     * Layout of the paths in the {@code _paths.dot} files.
+     */
+    public enum OutputFormat {
+        /**
+         * One subgraph per path.
+         */
+        SUBGRAPHS,
+        /**
+         * A single prefix tree, see {@link PathTreeWriter}.
+         */
+        TREE
+    }
+
+    /**
+     * Solver run on the paths while they are enumerated.
+     */
+    public enum Solver {
+        /**
+         * No solver: the constraints are solved afterwards, from the path files.
+         */
+        NONE,
+        /**
+         * Z3, driven incrementally by {@link PathSolver}. Needs the build with the {@code smt} profile.
+         */
+        Z3
+    }
+
+    private long pathBudget = 100_000;
+    private OverBudgetMode overBudgetMode = OverBudgetMode.SAMPLED;
+    private long seed = 0;
+    private int loopUnrolling = 0;
+    private Enumeration enumeration = Enumeration.EXHAUSTIVE;
+    private long timeBudget = 0;
+    private OutputFormat outputFormat = OutputFormat.SUBGRAPHS;
+    private boolean slice = true;
+    private boolean pruneInfeasible = true;
+    private Solver solver = Solver.NONE;
+    private boolean smtLib = false;
+    private Sinks sinks = null;
+    private boolean mergePaths = false;
+    private boolean fastPath = false;
+    private boolean schemaOnly = false;
+    private boolean dexTriage = true;
+    private boolean parallel = false;
+
+    /**
+     * Parses the options.
+     *
+     * @param args The command-line arguments following the APK path.
+     * @return The options, with defaults for the ones not given.
+     * @throws IllegalArgumentException If an option is unknown or has an invalid value.
+     */
+    public static AnalysisOptions parse(String[] args) {
+        AnalysisOptions options = new AnalysisOptions();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("="))
+                throw new IllegalArgumentException("Invalid option: " + arg + " (expected --name=value)");
+
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            try {
+                switch (name) {
+                    case "path-budget":
+                        options.pathBudget = Long.parseLong(value);
+                        if (options.pathBudget <= 0)
+                            throw new IllegalArgumentException("The path budget must be positive: " + value);
+                        break;
+                    case "over-budget":
+                        if (value.equalsIgnoreCase("capped"))
+                            options.overBudgetMode = OverBudgetMode.CAPPED;
+                        else if (value.equalsIgnoreCase("sampled"))
+                            options.overBudgetMode = OverBudgetMode.SAMPLED;
+                        else
+                            throw new IllegalArgumentException("Invalid value for --over-budget: " + value + " (capped or sampled)");
+                        break;
+                    case "seed":
+                        options.seed = Long.parseLong(value);
+                        break;
+                    case "loop-unrolling":
+                        options.loopUnrolling = Integer.parseInt(value);
+                        if (options.loopUnrolling < 0)
+                            throw new IllegalArgumentException("The loop unrolling must not be negative: " + value);
+                        break;
+                    case "enumeration":
+                        if (value.equalsIgnoreCase("exhaustive"))
+                            options.enumeration = Enumeration.EXHAUSTIVE;
+                        else if (value.equalsIgnoreCase("coverage"))
+                            options.enumeration = Enumeration.COVERAGE;
+                        else
+                            throw new IllegalArgumentException("Invalid value for --enumeration: " + value + " (exhaustive or coverage)");
+                        break;
+                    case "time-budget":
+                        options.timeBudget = Long.parseLong(value);
+                        if (options.timeBudget < 0)
+                            throw new IllegalArgumentException("The time budget must not be negative: " + value);
+                        break;
+                    case "output-format":
+                        if (value.equalsIgnoreCase("subgraphs"))
+                            options.outputFormat = OutputFormat.SUBGRAPHS;
+                        else if (value.equalsIgnoreCase("tree"))
+                            options.outputFormat = OutputFormat.TREE;
+                        else
+                            throw new IllegalArgumentException("Invalid value for --output-format: " + value + " (subgraphs or tree)");
+                        break;
+                    case "slice":
+                        options.slice = parseBoolean(name, value);
+                        break;
+                    case "prune-infeasible":
+                        options.pruneInfeasible = parseBoolean(name, value);
+                        break;
+                    case "solver":
+                        if (value.equalsIgnoreCase("none"))
+                            options.solver = Solver.NONE;
+                        else if (value.equalsIgnoreCase("z3") && PathSolver.isZ3Available())
+                            options.solver = Solver.Z3;
+                        else if (value.equalsIgnoreCase("z3"))
+                            throw new IllegalArgumentException("--solver=z3 needs the build with the smt profile (mvn -Psmt package)");
+                        else
+                            throw new IllegalArgumentException("Invalid value for --solver: " + value + " (none or z3)");
+                        break;
+                    case "sinks":
+                        options.sinks = Sinks.parse(value);
+                        break;
+                    case "smtlib":
+                        options.smtLib = parseBoolean(name, value);
+                        break;
+                    case "merge-paths":
+                        options.mergePaths = parseBoolean(name, value);
+                        break;
+                    case "fast-path":
+                        options.fastPath = parseBoolean(name, value);
+                        break;
+                    case "schema-only":
+                        options.schemaOnly = parseBoolean(name, value);
+                        break;
+                    case "dex-triage":
+                        options.dexTriage = parseBoolean(name, value);
+                        break;
+                    case "parallel":
+                        options.parallel = parseBoolean(name, value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: --" + name);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for --" + name + ": " + value);
+            }
+        }
+        return options;
+    }
+
+    /**
+     * @param name  The name of the option.
+     * @param value Its value, {@code true} or {@code false} in any case.
+     * @return The value.
+     * @throws IllegalArgumentException If the value is neither.
+     */
+    private static boolean parseBoolean(String name, String value) {
+        if (value.equalsIgnoreCase("true"))
+            return true;
+        if (value.equalsIgnoreCase("false"))
+            return false;
+        throw new IllegalArgumentException("Invalid value for --" + name + ": " + value + " (true or false)");
+    }
+
+    /**
+     * @return The maximum number of paths enumerated for a method.
+     */
+    public long getPathBudget() {
+        return pathBudget;
+    }
+
+    /**
+     * @return How paths are enumerated when a method has more paths than the budget.
+     */
+    public OverBudgetMode getOverBudgetMode() {
+        return overBudgetMode;
+    }
+
+    /**
+     * @return The seed of the random sampling, so that runs are reproducible.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The maximum number of times a path takes the back edges of each loop, see {@link LoopUnroller}.
+     */
+    public int getLoopUnrolling() {
+        return loopUnrolling;
+    }
+
+    /**
+     * @return The order in which the paths of a method are enumerated.
+     */
+    public Enumeration getEnumeration() {
+        return enumeration;
+    }
+
+    /**
+     * @return The maximum time, in seconds, spent enumerating the paths of a method in coverage order, 0 for no limit.
+     */
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+
+    /**
+     * @return The layout of the paths in the {@code _paths.dot} files.
+     */
+    public OutputFormat getOutputFormat() {
+        return outputFormat;
+    }
+
+    /**
+     * @return Whether the branches that do not influence the Intent-related nodes are followed through a single
+     * successor, see {@link GraphSlicer}.
+     */
+    public boolean isSlice() {
+        return slice;
+    }
+
+    /**
+     * @return Whether the paths whose branch outcomes contradict each other are cut, see {@link PathFeasibility}.
+     */
+    public boolean isPruneInfeasible() {
+        return pruneInfeasible;
+    }
+
+    /**
+     * @return The solver run on the paths while they are enumerated.
+     */
+    public Solver getSolver() {
+        return solver;
+    }
+
+    /**
+     * @return Whether the constraints of the paths are also written as an SMT-LIB2 script, see {@link SmtLibWriter}.
+     */
+    public boolean isSmtLib() {
+        return smtLib;
+    }
+
+    /**
+     * @return The sinks the written paths must reach, see {@link SinkFilter}, or null to write all the paths.
+     */
+    public Sinks getSinks() {
+        return sinks;
+    }
+
+    /**
+     * @return Whether the paths with the Intent constraints of a previous path are merged into it, see {@link PathMerger}.
+     */
+    public boolean isMergePaths() {
+        return mergePaths;
+    }
+
+    /**
+     * @return Whether the paths with trivial Intent constraints are solved without a solver, see {@link FastPathSolver}.
+     */
+    public boolean isFastPath() {
+        return fastPath;
+    }
+
+    /**
+     * @return Whether only the Intent schema of the APK is written, without enumerating paths, see {@link IntentSchema}.
+     */
+    public boolean isSchemaOnly() {
+        return schemaOnly;
+    }
+
+    /**
+     * @return Whether the dex files are scanned first, to skip the APKs whose exported activities do not read the
+     * Intent and to build bodies only for the classes they need, see {@link DexTriage}.
+     */
+    public boolean isDexTriage() {
+        return dexTriage;
+    }
+
+    /**
+     * @return Whether the paths of a method within the budget are enumerated on all cores by
+     * {@link ParallelPathEnumerator}, which keeps the distinct paths in memory until the enumeration ends.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+}
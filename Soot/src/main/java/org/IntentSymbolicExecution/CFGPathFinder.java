@@ -1,248 +1,423 @@
 package org.IntentSymbolicExecution;
 
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
-import java.util.regex.Matcher;
-
-import static org.IntentSymbolicExecution.RegexUtils.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 import org.IntentSymbolicExecution.ControlFlowGraph.GraphNode;
 
 public class CFGPathFinder {
 
-    private final FilteredControlFlowGraph filteredControlFlowGraph;
-    private final ControlFlowGraph filteredCFG;
-
-    public CFGPathFinder(FilteredControlFlowGraph graph) {
-        this.filteredControlFlowGraph = graph;
-        this.filteredCFG = graph.getFullCFG();
-    }
+    /**
+     * Number of path-multiplying branches reported in the DOT header when a method is over the path budget.
+     */
+    private static final int REPORTED_BLOWUPS = 5;
 
+    /**
+     * Index based view of the graph, with the Intent relevance computed once by {@link FilteredControlFlowGraph},
+     * its loops unrolled by {@link LoopUnroller} and, unless disabled in the options, sliced by {@link GraphSlicer}.
+     */
+    private final PathGraph pathGraph;
 
-    /*public List<List<GraphNode>> getAllPathsIterative() {
-        List<List<GraphNode>> allPaths = new ArrayList<>();
+    /**
+     * Variable versions of the nodes of {@link #pathGraph}, parsed once.
+     */
+    private final VariableVersioning variableVersioning;
 
-        ControlFlowGraph graph = filteredControlFlowGraph.getFullCFG();
+    /**
+     * Feasibility check of the paths of {@link #pathGraph}, or null if infeasible paths are not pruned.
+     */
+    private final PathFeasibility feasibility;
 
-        GraphNode firstNode = graph.getRootsNodes().get(0);
-        allPaths.add(new ArrayList<>(List.of(firstNode)));
+    /**
+     * Restriction of the paths of {@link #pathGraph} to the ones reaching a sink, or null if all paths are kept.
+     */
+    private final SinkFilter sinkFilter;
 
-        Stack<GraphNode> stack = new Stack<>();
-        stack.push(firstNode);
+    private final AnalysisOptions options;
 
-        while (!stack.isEmpty()) {
-            GraphNode node = stack.pop();
-            Set<GraphNode> preds = graph.getPredecessorNodes(node);
-            List<GraphNode> succs = new ArrayList<>(graph.getSuccessorNodes(node));
-            if (succs.isEmpty()) continue;
+    public CFGPathFinder(FilteredControlFlowGraph graph) {
+        this(graph, new AnalysisOptions());
+    }
 
-            int allPathsSize = allPaths.size();
-            for (int i = 0; i < allPathsSize; i++) {
+    public CFGPathFinder(FilteredControlFlowGraph graph, AnalysisOptions options) {
+        this.options = options;
+        PathGraph frozenGraph = PathGraph.of(graph.getFullCFG(), graph.getFilteredCFG().keySet());
+        PathGraph unrolledGraph = LoopUnroller.unroll(frozenGraph, options.getLoopUnrolling());
+        this.pathGraph = options.isSlice() ? GraphSlicer.slice(unrolledGraph) : unrolledGraph;
+        this.variableVersioning = new VariableVersioning(pathGraph);
+        this.feasibility = options.isPruneInfeasible() ? new PathFeasibility(pathGraph) : null;
+        this.sinkFilter = options.getSinks() != null ? new SinkFilter(pathGraph, options.getSinks()) : null;
+    }
 
-                List<GraphNode> path = allPaths.get(i);
+    /**
+     * Writes the Intent-related paths of the graph as a DOT file.
+     * <p>
+     * Paths are streamed: each one is produced by an iterative depth-first {@link PathEnumerator}, projected on the
+     * Intent-related nodes, skipped if its highlighted nodes repeat a previous path, renamed and written, before the
+     * next one is generated. Loops are unrolled as many times as the loop unrolling option allows
+     * ({@link LoopUnroller}); apart from that, a node never appears twice in the same path. Unless disabled in the
+     * options, the search runs on the graph sliced by {@link GraphSlicer}: branches that do not influence the
+     * Intent-related nodes are followed through a single successor.
+     * With the parallel option, the enumeration, projection and deduplication run first on all cores and only the
+     * distinct paths are renamed and written, in the same order and with the same numbering: these paths are then all
+     * kept in memory until the enumeration ends.
+     * <p>
+     * The paths are counted first by {@link PathCounter}. If they exceed the path budget of the {@link AnalysisOptions},
+     * either the first paths in depth-first order or uniformly drawn paths are enumerated, up to the budget, and the
+     * branches that multiply the paths the most are listed. The choice is recorded in the header.
+     * <p>
+     * In coverage order, paths are instead produced by {@link CoveragePathEnumerator}, each one covering as many new
+     * Intent-related edges (branch outcomes and edges to Intent-related nodes) as possible, until the path budget, the
+     * time budget or full coverage.
+     * <p>
+     * Infeasible paths are cut during the enumeration, and dropped from the drawn paths, by {@link PathFeasibility}:
+     * the path count and the budget refer to all the paths of the graph, feasible or not.
+     * <p>
+     * With the Z3 solver option, the enumeration is sequential and each prefix is solved incrementally by a
+     * {@link PathSolver}: unsatisfiable prefixes are cut, and the values of the Intent extras of each written path are
+     * written in a {@code _models.txt} file next to the DOT file, or "No solution" for the paths the solver could not
+     * decide.
+     * <p>
+     * With the tree output format, the paths are written as a single prefix tree by {@link PathTreeWriter}.
+     * <p>
+     * With sinks in the options, only the Intent-related nodes count as sinks, the branches from which no sink is
+     * reachable are not explored, and the sinks hit by each written path are listed in a {@code _sinks.txt} file next
+     * to the DOT file.
+     * <p>
+     * With the SMT-LIB option, the constraints of each written path are also streamed by {@link SmtLibWriter} to a
+     * {@code .smt2} file next to the DOT file, with the same path numbers.
+     * <p>
+     * With path merging, a path is also skipped if its Intent constraints are the ones of a previous path
+     * ({@link PathMerger}); the number of paths merged into each written path is listed in a {@code _merged.txt} file
+     * next to the DOT file.
+     * <p>
+     * With the fast path option, the paths with trivial Intent constraints are solved by {@link FastPathSolver}, and
+     * their extras written in a {@code _solved.json} file next to the DOT file; only the other paths are written to
+     * the SMT-LIB2 script, and the Z3 solver script skips the solved ones.
+     */
+    public void generateDotFile(String fileName, String apkFileName, int adkVersion, String packageName, String activity, String action) {
+        generateDotFile(fileName, apkFileName, adkVersion, packageName,
+                new ManifestParsing.Activity(activity, Collections.singletonList(action), List.of(), List.of(), true));
+    }
 
-                if (path.get(path.size() - 1).equals(node)) {
-                    for (int succIndex = 0; succIndex < succs.size() - 1; succIndex++) {
-                        List<GraphNode> newPath = new ArrayList<>(path);
-                        newPath.add(succs.get(succIndex));
-                        allPaths.add(newPath);
+    /**
+     * Generates the DOT file of the paths of the method for an activity, as
+     * {@link #generateDotFile(String, String, int, String, String, String)}. The paths do not depend on the Intent
+     * filters of the activity, so they are enumerated once and the header lists all its actions, categories and data
+     * specifications: {@code # action} holds the first action, {@code # actions} and {@code # categories} all of them
+     * separated by commas, and {@code # data} the data specifications separated by semicolons.
+     */
+    public void generateDotFile(String fileName, String apkFileName, int adkVersion, String packageName, ManifestParsing.Activity component) {
+        boolean solving = options.getSolver() == AnalysisOptions.Solver.Z3;
+        try (PathSolver solver = solving ? PathSolver.z3(pathGraph) : null;
+             PathOutput output = new PathOutput(fileName, solving)) {
+            output.writeHeader(apkFileName, adkVersion, packageName, component);
+
+            PathCounter counter = new PathCounter(pathGraph);
+            long totalPaths = counter.pathCount();
+            long budget = options.getPathBudget();
+            boolean overBudget = totalPaths > budget;
+            boolean coverage = options.getEnumeration() == AnalysisOptions.Enumeration.COVERAGE;
+            boolean sampled = !coverage && overBudget && options.getOverBudgetMode() == AnalysisOptions.OverBudgetMode.SAMPLED;
+            writeEnumerationHeader(output.writer, counter, totalPaths);
+
+            output.writer.write(String.format("digraph paths {\n"));
+            EnumerationStats stats;
+            if (coverage)
+                stats = enumerateCoverage(output, solver, budget);
+            else if (sampled)
+                stats = enumerateSampled(output, solver, counter, budget);
+            else if (overBudget)
+                stats = enumerateDepthFirst(output, solver, budget);
+            else if (options.isParallel() && solver == null)
+                stats = enumerateParallel(output);
+            else
+                stats = enumerateDepthFirst(output, solver, Long.MAX_VALUE);
+            output.writeFooter();
+
+            System.out.print("Number of paths: " + stats.enumerated + (overBudget || coverage ? " of " + totalPaths : "")
+                    + stats.coverage + (stats.distinct > 0 ? " (" + stats.distinct + " distinct)" : "") + output.summary()
+                    + (stats.pruned > 0 ? ", " + stats.pruned + (sampled ? " infeasible paths dropped" : " infeasible branches pruned") : "") + ".");
+        } catch (IOException e) {
+            System.err.print("Error writing DOT file: " + e.getMessage());
+        }
+    }
 
-                        if(!stack.contains(succs.get(succIndex)))
-                            stack.push(succs.get(succIndex));
-                    }
-                    path.add(succs.get(succs.size() - 1));
-                    if(!stack.contains(succs.get(succs.size() - 1)))
-                        stack.push(succs.get(succs.size() - 1));
-                }
-            }
+    /**
+     * Writes the enumeration mode to the DOT header and, for a method over the path budget, the branches that multiply
+     * the paths the most.
+     */
+    private void writeEnumerationHeader(Writer writer, PathCounter counter, long totalPaths) throws IOException {
+        long budget = options.getPathBudget();
+        boolean overBudget = totalPaths > budget;
+        if (options.getEnumeration() == AnalysisOptions.Enumeration.COVERAGE) {
+            writer.write(String.format("# enumeration: coverage (paths: %d, budget: %d, time budget: %ds)\n", totalPaths, budget, options.getTimeBudget()));
+            return;
         }
+        if (!overBudget)
+            writer.write(String.format("# enumeration: full (paths: %d, budget: %d)\n", totalPaths, budget));
+        else if (options.getOverBudgetMode() == AnalysisOptions.OverBudgetMode.CAPPED)
+            writer.write(String.format("# enumeration: capped (paths: %d, budget: %d)\n", totalPaths, budget));
+        else
+            writer.write(String.format("# enumeration: sampled (paths: %d, budget: %d, seed: %d)\n", totalPaths, budget, options.getSeed()));
+        if (overBudget) {
+            for (PathCounter.Blowup blowup : counter.blowups(REPORTED_BLOWUPS))
+                writer.write(String.format(Locale.ROOT, "# blowup: %s (added paths: %d, factor: %.1f)\n",
+                        pathGraph.node(blowup.getNode()).getValue(), blowup.getAddedPaths(), blowup.getFactor()));
+        }
+    }
 
-        return allPaths;
-    }*/
+    /**
+     * Counts of an enumeration, printed once the DOT file is written.
+     */
+    private static class EnumerationStats {
+        /**
+         * Number of enumerated or drawn paths, written or not.
+         */
+        private long enumerated = 0;
+        /**
+         * Number of distinct drawn paths, 0 if paths are not drawn.
+         */
+        private long distinct = 0;
+        /**
+         * Number of branches cut by the prefix check, or of drawn paths dropped as infeasible.
+         */
+        private long pruned = 0;
+        /**
+         * Coverage reached by the coverage enumeration, empty for the other ones.
+         */
+        private String coverage = "";
+    }
 
     /**
-     * Retrieves all possible paths from start nodes (with no incoming edges) to end nodes (with no outgoing edges).
-     *
-     * @return A list of all paths, where each path is a list of nodes (Map.Entry) in the order they are traversed.
+     * Writes the paths in coverage order, see {@link CoveragePathEnumerator}, until the path budget, the time budget
+     * or full coverage. The solver, if any, is only entered to write the model of each written path, which is skipped
+     * if the solver finds it unsatisfiable.
      */
-    public List<List<GraphNode>> getAllPaths() {
-        // Find start nodes (nodes with no predecessors)
-        List<GraphNode> startNodes = filteredCFG.getRootsNodes();
-
-        // Find end nodes (nodes with no successors)
-        List<GraphNode> endNodes = filteredCFG.getLeafNodes();
-
-        // Debug print edges for all nodes with node numbers
-        /*System.out.println("\n=== DEBUG EDGE CONNECTIONS ===");
-        int nodeCounter = 1;
-        for (Map.Entry<String, String> node : filteredCFG.vertexSet()) {
-            System.out.printf("\nNode %d:%n", nodeCounter++);
-            System.out.println("  Key:   " + node.getKey());
-            System.out.println("  Value: " + node.getValue());
-
-            // Print incoming edges (predecessors)
-            Set<DefaultEdge> incomingEdges = filteredCFG.incomingEdgesOf(node);
-            System.out.println("  Incoming edges: " + incomingEdges.size());
-            if (!incomingEdges.isEmpty()) {
-                System.out.println("    From:");
-                for (DefaultEdge edge : incomingEdges) {
-                    Map.Entry<String, String> source = filteredCFG.getEdgeSource(edge);
-                    System.out.println("      - " + source.getKey() + ": " + source.getValue());
-                }
-            }
+    private EnumerationStats enumerateCoverage(PathOutput output, PathSolver solver, long budget) throws IOException {
+        EnumerationStats stats = new EnumerationStats();
+        CoveragePathEnumerator enumerator = new CoveragePathEnumerator(pathGraph);
+        PrefixCheck prefixCheck = newPrefixCheck(solver);
+        if (prefixCheck != null)
+            enumerator.setPrefixCheck(prefixCheck);
+        if (options.getTimeBudget() > 0)
+            enumerator.setDeadline(System.nanoTime() + options.getTimeBudget() * 1_000_000_000L);
+
+        while (stats.enumerated < budget && enumerator.next()) {
+            stats.enumerated++;
+            int[] path = enumerator.path();
+            int length = enumerator.length();
+            if (!output.isNewProjection(path, length))
+                continue;
+            // An unsatisfiable path leaves the solver at the start of a path: there is nothing to write or to leave.
+            if (solver != null && !enter(solver, path, length))
+                continue;
+            if (output.isNewConstraintSet(path, length))
+                output.write(path, length, solver);
+            if (solver != null)
+                for (int i = 0; i < length; i++)
+                    solver.leave();
+        }
+        stats.coverage = String.format(", covering %d of %d Intent-related edges%s", enumerator.coveredGoals(),
+                enumerator.goalCount(), enumerator.isTimedOut() ? " (time budget reached)" : "");
+        return stats;
+    }
 
-            // Print outgoing edges (successors)
-            Set<DefaultEdge> outgoingEdges = filteredCFG.outgoingEdgesOf(node);
-            System.out.println("  Outgoing edges: " + outgoingEdges.size());
-            if (!outgoingEdges.isEmpty()) {
-                System.out.println("    To:");
-                for (DefaultEdge edge : outgoingEdges) {
-                    Map.Entry<String, String> target = filteredCFG.getEdgeTarget(edge);
-                    System.out.println("      - " + target.getKey() + ": " + target.getValue());
-                }
+    /**
+     * Draws paths uniformly up to the budget. Repeated draws are stored once; the distinct paths are then written in
+     * depth-first order, each one entered in the solver, if any, to cut it if it is unsatisfiable and to write its model.
+     */
+    private EnumerationStats enumerateSampled(PathOutput output, PathSolver solver, PathCounter counter, long budget) throws IOException {
+        EnumerationStats stats = new EnumerationStats();
+        Random random = new Random(options.getSeed());
+        int[] path = new int[pathGraph.size()];
+        PathSet sampled = new PathSet(pathGraph);
+        for (; stats.enumerated < budget; stats.enumerated++) {
+            int length = counter.samplePath(random, path);
+            if (sinkFilter != null && sinkFilter.sinks(path, length).isEmpty())
+                continue;
+            if (feasibility == null || feasibility.isFeasible(path, length))
+                sampled.add(path, length);
+            else
+                stats.pruned++;
+        }
+        stats.distinct = sampled.size();
+
+        List<int[]> kept = new ArrayList<>();
+        sampled.forEach((sampledPath, length) -> {
+            if (output.isNewProjection(sampledPath, length))
+                kept.add(Arrays.copyOf(sampledPath, length));
+        });
+        for (int[] keptPath : kept) {
+            if (solver != null && !enter(solver, keptPath, keptPath.length)) {
+                stats.pruned++;
+                continue;
             }
-
-            System.out.println("----------------------");
-        }*/
-
-        // Rest of the code remains the same...
-        List<List<GraphNode>> allPaths = new ArrayList<>();
-        for (GraphNode start : startNodes) {
-            LinkedList<GraphNode> currentPath = new LinkedList<>();
-            Set<GraphNode> visitedInPath = new HashSet<>();
-            findAllPathsDFS(start, endNodes, currentPath, visitedInPath, allPaths);
+            if (output.isNewConstraintSet(keptPath, keptPath.length))
+                output.write(keptPath, keptPath.length, solver);
+            if (solver != null)
+                for (int i = 0; i < keptPath.length; i++)
+                    solver.leave();
         }
-
-        return allPaths;
-
+        return stats;
     }
 
     /**
-     * Renames variables in the given list of paths.
-     *
-     * <p>This method iterates over each path (a list of code entries), identifies assignment statements,
-     * and renames the variables by appending an underscore and a usage count. The new name is applied to both
-     * the left-hand side (assignment target) and the right-hand side (usages) within each code line.
-     *
-     * <p>For example, if a variable "i0" is assigned, it will be renamed to "i0_1" on its first occurrence,
-     * and subsequent usages will be updated accordingly.
-     *
-     * @param allPaths the original list of paths, where each path is a list of Map.Entry objects (key: identifier, value: code line)
-     * @return a new list of paths with the variables renamed sensibly
+     * Writes the paths in depth-first order, up to the budget. The solver, if any, follows the enumeration.
      */
-    private List<List<GraphNode>> variableRenaming(List<List<GraphNode>> allPaths) {
-        List<List<GraphNode>> updatedPaths = new ArrayList<>();
-
-        // Iterate over each path (list of entries)
-        for (List<GraphNode> path : allPaths) {
-            // Map to store the usage count for each variable in the current path
-            Map<String, Integer> variableUsageCount = new HashMap<>();
-            List<GraphNode> updatedPath = new ArrayList<>();
-
-            // Process each code entry in the path
-            for (GraphNode entry : path) {
-                String codeLine = entry.getValue();
-                String assignedVariable = "";
-
-                // Check if the line contains an assignment using the assignationPattern regex.
-                Matcher matcher = assignationPattern.matcher(codeLine);
-                if (matcher.find()) {
-                    // Extract the variable name from the assignment.
-                    assignedVariable = matcher.group("assignation").replace("$", "");
-
-                    if (!assignedVariable.equals("null")) { // assignedVariable is "null" e.g. null (void) = method...
-                        // Update usage count for this variable.
-                        variableUsageCount.put(assignedVariable, variableUsageCount.getOrDefault(assignedVariable, 0) + 1);
-                        // Create a new variable name by appending the current count.
-                        String newVariableName = assignedVariable + "_" + variableUsageCount.get(assignedVariable);
-
-                        // Update the full code line with the modified left-hand side.
-
-                        String replaceRegex = String.format(variableRenamingRegex, assignedVariable.replace("$", "\\$"));
-                        newVariableName = newVariableName.replace("$", "");
-                        codeLine = codeLine.replaceFirst(replaceRegex, newVariableName);
-                    }
-                }
-
-                // Process variable replacements in the rest of the line.
-                for (String var : variableUsageCount.keySet()) {
-                    String segmentToReplace = codeLine;
-                    if (codeLine.contains(" goto "))
-                        segmentToReplace = codeLine.substring(0, codeLine.indexOf(" goto "));
-
-                    // By default, the replacement uses the current count.
-                    String replacementName = String.format("%s_%d", var, variableUsageCount.get(var));
-//                    String segmentToReplace = codeLine;
-
-                    if (var.equals(assignedVariable)) {
-                        // For the right-hand side, use the previous count (if the assignment was processed)
-                        replacementName = String.format("%s_%d", var, variableUsageCount.get(var) - 1)
-                                .replace('-', '_');
-                        // Only consider the portion after the equal sign.
-                    }
-
-                    // Replace occurrences of the variable in the designated segment.
-                    String replaceRegex = String.format(variableRenamingRegex, var);
-//                    replacementName = replacementName.replace("$", "");
-
-                    String updatedSegment = segmentToReplace.replaceAll(replaceRegex, Matcher.quoteReplacement(replacementName));
-
-                    // Update the full code line with the replaced segment.
-                    codeLine = codeLine.replace(segmentToReplace, updatedSegment); // .replace("\\$", "$");
-                }
-                // Add the updated entry with the modified code line to the updated path.
-                updatedPath.add(new GraphNode(entry.getKey(), codeLine));
-            }
-            // Add the fully updated path to the collection of updated paths.
-            updatedPaths.add(updatedPath);
+    private EnumerationStats enumerateDepthFirst(PathOutput output, PathSolver solver, long budget) throws IOException {
+        EnumerationStats stats = new EnumerationStats();
+        PathEnumerator enumerator = newEnumerator(solver);
+        while (stats.enumerated < budget && enumerator.next()) {
+            stats.enumerated++;
+            output.writeIfNew(enumerator.path(), enumerator.length(), solver);
         }
+        stats.pruned = enumerator.pruned();
+        return stats;
+    }
 
-        return updatedPaths;
+    /**
+     * Enumerates the paths on all cores with {@link ParallelPathEnumerator}, which returns the first path of each
+     * distinct projection in the same order as the sequential search, then writes them.
+     */
+    private EnumerationStats enumerateParallel(PathOutput output) throws IOException {
+        EnumerationStats stats = new EnumerationStats();
+        Supplier<PrefixCheck> prefixChecks = feasibility != null || sinkFilter != null ? () -> newPrefixCheck(null) : null;
+        ParallelPathEnumerator.Result result = new ParallelPathEnumerator(pathGraph, prefixChecks).enumerate(ForkJoinPool.commonPool());
+        stats.enumerated = result.getEnumerated();
+        stats.pruned = result.getPruned();
+        for (int[] path : result.getPaths())
+            output.writeIfNew(path, path.length, null);
+        return stats;
     }
 
+    /**
+     * @param solver The solver following the enumeration, or null.
+     * @return An enumerator of the paths of the graph, cut by {@link #newPrefixCheck(PathSolver)}.
+     */
+    private PathEnumerator newEnumerator(PathSolver solver) {
+        PathEnumerator enumerator = new PathEnumerator(pathGraph);
+        PrefixCheck prefixCheck = newPrefixCheck(solver);
+        if (prefixCheck != null)
+            enumerator.setPrefixCheck(prefixCheck);
+        return enumerator;
+    }
 
     /**
-     * Recursively performs DFS to find all paths from the current node to any end node.
+     * @param solver The solver following the enumeration, or null.
+     * @return A check cutting the prefixes that reach no sink if there are sinks, then the infeasible ones if enabled,
+     * then the unsatisfiable ones if there is a solver; null if there is nothing to check.
+     */
+    private PrefixCheck newPrefixCheck(PathSolver solver) {
+        PrefixCheck prefixCheck = sinkFilter != null ? sinkFilter.newState() : null;
+        if (feasibility != null)
+            prefixCheck = prefixCheck != null ? prefixCheck.andThen(feasibility.newState()) : feasibility.newState();
+        if (solver != null)
+            prefixCheck = prefixCheck != null ? prefixCheck.andThen(solver) : solver;
+        return prefixCheck;
+    }
+
+    /**
+     * Enters all the nodes of a path in a solver.
      *
-     * @param currentNode   The current node being visited.
-     * @param endNodes      List of all end nodes in the graph.
-     * @param currentPath   The current path being explored.
-     * @param visitedInPath Set of nodes visited in the current path to prevent cycles.
-     * @param allPaths      List to collect all valid paths found.
+     * @return true if the path is satisfiable. Otherwise the solver is left at the start of a path.
      */
-    private void findAllPathsDFS(GraphNode currentNode,
-                                 List<GraphNode> endNodes,
-                                 LinkedList<GraphNode> currentPath,
-                                 Set<GraphNode> visitedInPath,
-                                 List<List<GraphNode>> allPaths) {
-        // Add current node to the path and mark as visited
-        currentPath.add(currentNode);
-        visitedInPath.add(currentNode);
-
-        // If current node is an end node, save the current path
-        if (endNodes.contains(currentNode)) {
-            allPaths.add(new ArrayList<>(currentPath));
-        } else {
-            // Recur for all adjacent nodes not yet visited in the current path
-            for (GraphNode succ : filteredCFG.getSuccessorNodes(currentNode)) {
-                if (!visitedInPath.contains(succ)) {
-                    findAllPathsDFS(succ, endNodes, currentPath, visitedInPath, allPaths);
-                }
+    private static boolean enter(PathSolver solver, int[] path, int length) {
+        for (int i = 0; i < length; i++) {
+            if (!solver.enter(i > 0 ? path[i - 1] : -1, path[i])) {
+                for (int j = 0; j < i; j++)
+                    solver.leave();
+                return false;
             }
         }
+        return true;
+    }
 
-        // Backtrack: remove current node from path and unmark
-        currentPath.removeLast();
-        visitedInPath.remove(currentNode);
+    /**
+     * Writes the values of the Intent extras of the current path of a solver.
+     */
+    private static void writeModel(Writer models, int pathNumber, PathSolver solver) throws IOException {
+        String model = solver.model();
+        models.write(String.format("path_%d: %s\n", pathNumber, model != null ? model : "No solution"));
     }
 
-    public void generateDotFile(String fileName, String apkFileName, int adkVersion, String packageName, String activity, String action) {
-        try (FileWriter writer = new FileWriter(fileName)) {
+    /**
+     * The outputs of the paths of a method: the DOT file, with each path as a subgraph or in the prefix tree, and the
+     * optional models, fast path solutions, SMT-LIB2 script, sink report and merge report next to it. Paths repeating
+     * the highlighted nodes or, when merging, the Intent constraints of a previous path are skipped, and the written
+     * ones are numbered from 1.
+     */
+    private class PathOutput implements Closeable {
+        /**
+         * The open files, in opening order.
+         */
+        private final List<Closeable> files = new ArrayList<>();
+
+        private final Writer writer;
+        private final Writer models;
+        private final Writer smtLib;
+        private final Writer sinkReport;
+        private final Writer mergeReport;
+        private final PathTreeWriter treeWriter;
+        private final SmtLibWriter smtLibWriter;
+        private final FastPathSolver fastPathSolver;
+        private final PathMerger merger;
+
+        /**
+         * Projections of the paths already written, to avoid repetition.
+         */
+        private final SequenceSet writtenProjections = new SequenceSet();
+        private int pathNumber = 1;
+
+        /**
+         * Opens the DOT file and the files enabled by the options next to it.
+         *
+         * @param fileName The name of the DOT file.
+         * @param solving  Whether a solver writes the models of the paths.
+         */
+        PathOutput(String fileName, boolean solving) throws IOException {
+            String baseName = fileName.replaceFirst("\\.dot$", "");
+            try {
+                writer = open(fileName);
+                models = solving ? open(baseName + "_models.txt") : null;
+                smtLib = options.isSmtLib() ? open(baseName + ".smt2") : null;
+                sinkReport = sinkFilter != null ? open(baseName + "_sinks.txt") : null;
+                mergeReport = options.isMergePaths() ? open(baseName + "_merged.txt") : null;
+                Writer solved = options.isFastPath() ? open(baseName + "_solved.json") : null;
+
+                PathConstraints constraints = smtLib != null || mergeReport != null || solved != null
+                        ? new PathConstraints(pathGraph) : null;
+                treeWriter = options.getOutputFormat() == AnalysisOptions.OutputFormat.TREE
+                        ? new PathTreeWriter(writer, pathGraph, variableVersioning) : null;
+                smtLibWriter = smtLib != null ? new SmtLibWriter(smtLib, constraints) : null;
+                fastPathSolver = solved != null ? new FastPathSolver(solved, constraints) : null;
+                merger = mergeReport != null ? new PathMerger(constraints) : null;
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
 
+        private Writer open(String fileName) throws IOException {
+            BufferedWriter file = new BufferedWriter(new FileWriter(fileName));
+            files.add(file);
+            return file;
+        }
 
-            List<List<GraphNode>> allPaths = getAllPaths();
-            List<List<GraphNode>> renamedAllPaths = variableRenaming(allPaths);
+        /**
+         * Writes the header of the DOT file, with the component and the options, and the ones of the other files.
+         */
+        void writeHeader(String apkFileName, int adkVersion, String packageName, ManifestParsing.Activity component) throws IOException {
+            String activity = component.getName();
+            String action = component.getAction();
+            String sideHeader = String.format("apkFile: %s\nsdkVersion: %d\npackage: %s\nactivity: %s\naction: %s\n\n",
+                    apkFileName, adkVersion, packageName, activity, action);
 
             writer.write(String.format("# apkFile: %s\n", apkFileName));
             writer.write(String.format("# sdkVersion: %d\n", adkVersion));
@@ -250,132 +425,184 @@ public class CFGPathFinder {
             writer.write(String.format("# package: %s\n", packageName));
             writer.write(String.format("# activity: %s\n", activity));
             writer.write(String.format("# action: %s\n", action));
+            if (component.getActions().size() > 1)
+                writer.write(String.format("# actions: %s\n", String.join(", ", component.getActions())));
+            if (!component.getCategories().isEmpty())
+                writer.write(String.format("# categories: %s\n", String.join(", ", component.getCategories())));
+            if (!component.getDataSpecs().isEmpty())
+                writer.write(String.format("# data: %s\n", String.join("; ", component.getDataSpecs())));
+            writer.write(String.format("# loopUnrolling: %d\n", options.getLoopUnrolling()));
+            writer.write(String.format("# slice: %b\n", options.isSlice()));
+            writer.write(String.format("# pruneInfeasible: %b\n", feasibility != null));
+            if (treeWriter != null)
+                writer.write("# format: tree\n");
+            if (sinkReport != null) {
+                writer.write(String.format("# sinks: %s\n", options.getSinks()));
+                sinkReport.write(sideHeader);
+            }
+            if (mergeReport != null) {
+                writer.write("# mergePaths: true\n");
+                mergeReport.write(sideHeader);
+            }
+            if (fastPathSolver != null) {
+                writer.write("# fastPath: true\n");
+                fastPathSolver.writeHeader(apkFileName, adkVersion, packageName, activity, action);
+            }
+            if (models != null) {
+                writer.write("# solver: z3\n");
+                models.write(sideHeader);
+            }
+            if (smtLibWriter != null) {
+                smtLib.write(String.format("; apkFile: %s\n; sdkVersion: %d\n; package: %s\n; activity: %s\n; action: %s\n",
+                        apkFileName, adkVersion, packageName, activity, action));
+                smtLibWriter.writeDeclarations();
+            }
+        }
 
-            int pathNumber = 1;
-            writer.write(String.format("digraph paths {\n"));
-//            System.out.println("         " + renamedAllPaths.size());
-            StringBuilder sb = new StringBuilder();
+        /**
+         * Writes a path, unless none of its nodes is highlighted, its highlighted nodes repeat a previous path or its
+         * constraints are merged into a previous path.
+         *
+         * @param path   The node ids of the path.
+         * @param length The number of nodes of the path.
+         * @param solver The solver, at the end of the path, or null.
+         * @return true if the path was written.
+         */
+        boolean writeIfNew(int[] path, int length, PathSolver solver) throws IOException {
+            if (!isNewProjection(path, length) || !isNewConstraintSet(path, length))
+                return false;
+            write(path, length, solver);
+            return true;
+        }
 
-            int count = 0;
+        /**
+         * Checks whether a path highlights some nodes and its highlighted nodes differ from the ones of the previous
+         * paths. The comparison is exact: the projections are kept as key id sequences in a {@link SequenceSet}.
+         *
+         * @param path   The node ids of the path.
+         * @param length The number of nodes of the path.
+         * @return true if the projection of the path is not empty and new. It is then added to the previous ones.
+         */
+        boolean isNewProjection(int[] path, int length) {
+            int[] projection = new int[length];
+            int projectionLength = pathGraph.highlightedKeyIds(path, length, projection);
+            return projectionLength > 0 && writtenProjections.add(projection, projectionLength);
+        }
 
-            Set<Integer> highlightNodesList = new HashSet<>(); // Set with the hashcode of previous list, to avoid repetition
+        /**
+         * @return true if paths are not merged or the constraints of the path differ from the ones of the previous
+         * paths, false if the path is merged into a previous one.
+         */
+        boolean isNewConstraintSet(int[] path, int length) {
+            return merger == null || merger.add(path, length, pathNumber);
+        }
 
-            for (int pathIndex = 0; pathIndex < renamedAllPaths.size(); pathIndex++) {
+        /**
+         * Writes a path under the next number, as a subgraph or in the prefix tree, its solution if it is trivial, else
+         * its constraints if there is an SMT-LIB2 script, the sinks it hits if there are sinks and its model if there
+         * is a solver.
+         *
+         * @param solver The solver, at the end of the path, or null.
+         */
+        void write(int[] path, int length, PathSolver solver) throws IOException {
+            boolean solved = fastPathSolver != null && fastPathSolver.write(pathNumber, path, length);
+            if (smtLibWriter != null && !solved)
+                smtLibWriter.write(pathNumber, path, length);
+            if (sinkReport != null)
+                sinkReport.write(String.format("path_%d: %s\n", pathNumber, String.join(", ", sinkFilter.sinks(path, length))));
+            if (solver != null)
+                writeModel(models, pathNumber, solver);
+            if (treeWriter != null) {
+                treeWriter.write(pathNumber++, path, length);
+                return;
+            }
 
-                List<GraphNode> path = renamedAllPaths.get(pathIndex);
-                List<String> nodeToHighlight = filteredNodes(path);
-                if (nodeToHighlight.isEmpty()) continue;
+            List<GraphNode> originalPath = pathGraph.toNodes(path, length);
+            Set<String> nodeToHighlight = new HashSet<>(pathGraph.highlightedKeys(path, length));
+            writePath(writer, pathNumber++, originalPath, variableVersioning.rename(path, length), nodeToHighlight);
+        }
 
-                int hashCode = nodeToHighlight.hashCode();
-                if (highlightNodesList.contains(hashCode))
-                    continue;
-                highlightNodesList.add(hashCode);
+        /**
+         * Closes the DOT graph and writes the merge report and the end of the fast path solutions.
+         */
+        void writeFooter() throws IOException {
+            writer.write("}\n");
+            if (merger != null)
+                merger.writeReport(mergeReport);
+            if (fastPathSolver != null)
+                fastPathSolver.writeFooter();
+        }
 
-                count++;
-                sb.append(String.format("subgraph path_%d {\n", pathNumber));
-                for (int nodeNumber = 0; nodeNumber < path.size(); nodeNumber++) {
-                    GraphNode node = path.get(nodeNumber);
-                    String nodeName = "node" + (nodeNumber + 1) + "_" + pathNumber;
-                    String nodeLabel = node.getValue().replace("\\", "\\\\").replace("\"", "\\\"");
+        /**
+         * @return The merged and fast path counts, for the summary of the enumeration.
+         */
+        String summary() {
+            return (merger != null ? ", " + merger.size() + " distinct constraint sets of " + merger.pathCount() + " paths" : "")
+                    + (fastPathSolver != null ? ", " + fastPathSolver.solvedCount() + " solved on the fast path, "
+                    + fastPathSolver.residualCount() + " residual" : "");
+        }
 
-                    if (nodeToHighlight.contains(node.getKey()))
-                        sb.append(String.format("    %s [label=\"%s\", color=blue];\n", nodeName, nodeLabel));
+        /**
+         * Closes the files in reverse opening order, even if closing one of them fails.
+         */
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (int i = files.size() - 1; i >= 0; i--) {
+                try {
+                    files.get(i).close();
+                } catch (IOException e) {
+                    if (failure == null)
+                        failure = e;
                     else
-                        sb.append(String.format("    %s [label=\"%s\"];\n", nodeName, nodeLabel));
-
-                    if (nodeNumber > 0) {
-
-                        String originalPrevNodeLabel = allPaths.get(pathIndex).get(nodeNumber - 1).getValue();
-                        String originalLabel = allPaths.get(pathIndex).get(nodeNumber).getValue();
-
-                        String prevNodeName = "node" + (nodeNumber) + "_" + pathNumber;
-
-                        String ifLabel = "";
-                        if (originalPrevNodeLabel.startsWith("if") && originalPrevNodeLabel.contains(" goto ")) {
-                            String ifTrueNode = originalPrevNodeLabel.split(" goto ")[1];
-                            ifLabel = String.format(" [label=\"%s\"]", ifTrueNode.equals(originalLabel));
-                        }
-
-                        sb.append(String.format("    %s -> %s%s;\n", prevNodeName, nodeName, ifLabel));
-                    }
+                        failure.addSuppressed(e);
                 }
-
-                sb.append("}\n\n"); // Close the current subgraph
-                pathNumber++;
             }
-            sb.append("}\n");
-
-            writer.write(sb.toString());
-            writer.close();
-            System.out.print("Number of paths: " + renamedAllPaths.size() +".");
-        } catch (IOException e) {
-            System.err.print("Error writing DOT file: " + e.getMessage());
+            if (failure != null)
+                throw failure;
         }
     }
 
-    private List<String> filteredNodes(List<GraphNode> path) {
-        // Initialize a map to keep track of parameters that we need to monitor during the analysis.
-        // The map's key represents the parameter's name, and the value represents its associated type.
-//        Map<String, String> parametersToTrack = new HashMap<>();
-        HashSet<String> parametersToTrack = new HashSet<>();
-
-        // Map with the filtered Nodes
-        List<String> filteredNodes = new ArrayList<>();
-
-        // Store the count of parameters to track at the beginning of the loop.
-        // This helps in detecting when we've finished processing all relevant parameters.
-        int startParametersCount;
-
-        // A flag to determine when we should start adding vertices to the filtered control flow graph.
-        // Initially, we don't add any vertices until we've encountered the first relevant Intent or Bundle operation.
-        boolean startAdding; // Start adding vertices after the root node
-
-        do {
-            startParametersCount = parametersToTrack.size();
-
-            boolean addNextNode = false;
-
-            // Iterate through the units in the graph
-            for (int i = 0; i < path.size(); i++) {
-                GraphNode node = path.get(i);
-                String nodeName = node.getKey();
-                String line = node.getValue();
-
-                // Match lines containing getExtra methods in Intent or Bundle objects
-                Matcher extraMatcher = patternExtra.matcher(line);
-                if (extraMatcher.find())
-                    parametersToTrack.add(extraMatcher.group("assignation"));
-
-                Matcher actionMatcher = patterGetAction.matcher(line);
-                if (actionMatcher.find())
-                    parametersToTrack.add(actionMatcher.group(1));
-
-                // Check if any saved parameters are used in the current unit
-                if (parametersToTrack.stream().anyMatch(line::contains) || addNextNode) {
-                    filteredNodes.add(nodeName);
-
-                    Matcher matcher = assignationPattern.matcher(line);
-                    if (matcher.find()) {
-                        String newParameterName = matcher.group("assignation");
-                        parametersToTrack.add(newParameterName);
-                    }
-
-                    String[] newParametersName = line.split("\\.<")[0].split(" ");
-                    // Case: specialinvoke $r9.<java.math.BigInteger: void <init>(java.lang.String)>($r2)
-                    // It stores $r9 in parametersToTrack
-                    if (newParametersName.length == 2) {
-                        String newParameterName = newParametersName[1];
-                        parametersToTrack.add(newParameterName);
-                    }
+    /**
+     * Writes a single path as a DOT subgraph.
+     *
+     * @param writer          The output writer.
+     * @param pathNumber      The number of the path, used in the subgraph and node names.
+     * @param originalPath    The path before variable renaming, used to label the branch outcomes.
+     * @param path            The path after variable renaming.
+     * @param nodeToHighlight The keys of the nodes to highlight.
+     */
+    private void writePath(Writer writer, int pathNumber, List<GraphNode> originalPath, List<GraphNode> path,
+                           Set<String> nodeToHighlight) throws IOException {
+        writer.write(String.format("subgraph path_%d {\n", pathNumber));
+        for (int nodeNumber = 0; nodeNumber < path.size(); nodeNumber++) {
+            GraphNode node = path.get(nodeNumber);
+            String nodeName = "node" + (nodeNumber + 1) + "_" + pathNumber;
+            String nodeLabel = node.getValue().replace("\\", "\\\\").replace("\"", "\\\"");
+
+            if (nodeToHighlight.contains(node.getKey()))
+                writer.write(String.format("    %s [label=\"%s\", color=blue];\n", nodeName, nodeLabel));
+            else
+                writer.write(String.format("    %s [label=\"%s\"];\n", nodeName, nodeLabel));
+
+            if (nodeNumber > 0) {
+
+                String originalPrevNodeLabel = originalPath.get(nodeNumber - 1).getValue();
+                String originalLabel = originalPath.get(nodeNumber).getValue();
+
+                String prevNodeName = "node" + (nodeNumber) + "_" + pathNumber;
+
+                String ifLabel = "";
+                if (originalPrevNodeLabel.startsWith("if") && originalPrevNodeLabel.contains(" goto ")) {
+                    String ifTrueNode = originalPrevNodeLabel.split(" goto ")[1];
+                    ifLabel = String.format(" [label=\"%s\"]", ifTrueNode.equals(originalLabel));
                 }
 
-                addNextNode = line.startsWith("if") && filteredNodes.contains(nodeName);
+                writer.write(String.format("    %s -> %s%s;\n", prevNodeName, nodeName, ifLabel));
             }
         }
-        // Continue the loop until no new parameters are tracked, meaning we have processed all relevant parameters.
-        while (startParametersCount < parametersToTrack.size());
 
-        return filteredNodes;
+        writer.write("}\n\n"); // Close the current subgraph
     }
 
 }
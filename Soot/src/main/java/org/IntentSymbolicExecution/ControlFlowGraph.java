@@ -61,7 +61,7 @@ public class ControlFlowGraph {
 
         // Create nodes for each Unit in the ExceptionalUnitGraph.
         for (Unit unit : graph) {
-            GraphNode node = new GraphNode("node" + unit.hashCode(), unit.toString());
+            GraphNode node = new GraphNode("node" + unit.hashCode(), unit.toString(), unit);
             // Skip exception handling nodes.
             if (node.getValue().endsWith(" := @caughtexception"))
                 continue;
@@ -349,6 +349,10 @@ public class ControlFlowGraph {
          * The value or label of the node (typically representing a program statement).
          */
         private String NodeValue;
+        /**
+         * The Soot statement the node was built from, or null for the nodes built from a label only.
+         */
+        private final Unit NodeUnit;
 
         /**
          * Constructs a GraphNode with a key and value.
@@ -357,8 +361,20 @@ public class ControlFlowGraph {
          * @param nodeValue The value or content of the node.
          */
         public GraphNode(String nodeKey, String nodeValue) {
+            this(nodeKey, nodeValue, null);
+        }
+
+        /**
+         * Constructs a GraphNode with a key and value, built from a Soot statement.
+         *
+         * @param nodeKey   The unique key for the node.
+         * @param nodeValue The value or content of the node.
+         * @param nodeUnit  The statement of the node.
+         */
+        public GraphNode(String nodeKey, String nodeValue, Unit nodeUnit) {
             this.NodeKey = nodeKey;
             this.NodeValue = nodeValue;
+            this.NodeUnit = nodeUnit;
         }
 
         /**
@@ -384,6 +400,14 @@ public class ControlFlowGraph {
             return NodeValue;
         }
 
+        /**
+         * @return The Soot statement the node was built from, or null if it has none. The value of the node can have
+         * been rewritten since, the statement is the original one.
+         */
+        public Unit getUnit() {
+            return NodeUnit;
+        }
+
         /**
          * Sets a new value for the node.
          *
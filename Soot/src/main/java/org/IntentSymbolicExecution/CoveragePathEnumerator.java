@@ -0,0 +1,327 @@
+package org.IntentSymbolicExecution;
+
+import java.util.BitSet;
+
+/**
+ * Enumeration of the paths of a {@link PathGraph} in order of new coverage.
+ * <p>
+ * The goals are the Intent-related edges: the outcomes of the Intent-related branches, the edges leaving the nodes of
+ * {@link PathGraph#isRelevantBranch(int)}, and the edges entering Intent-related nodes. Each call to {@link #next()} returns a path covering as many goals not
+ * covered by the previous paths as possible, so the first paths are a small covering set and the enumeration can be
+ * stopped at any time. It ends when no path covers a new goal.
+ * <p>
+ * The best path is found by a branch and bound search. The bound of a node is the largest number of uncovered goals on
+ * a path from it to a leaf, computed with a dynamic program in post-order that ignores back edges, like
+ * {@link PathCounter}; successors are tried by decreasing bound, so the first path found is the greedy one, and a
+ * prefix is abandoned as soon as its bound cannot beat the best path. The bound is exact for acyclic graphs, so the
+ * search usually stops at the first path; it is longer only when a {@link PrefixCheck} cuts the greedy path.
+ */
+public class CoveragePathEnumerator {
+
+    /**
+     * Number of search steps between two checks of the deadline.
+     */
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    private final PathGraph graph;
+
+    /**
+     * Id of the first outgoing edge of each node: the edge to the s-th successor of a node is
+     * {@code edgeStart[node] + s}.
+     */
+    private final int[] edgeStart;
+    private final BitSet goals = new BitSet();
+    private final BitSet covered = new BitSet();
+    private final int goalCount;
+
+    /**
+     * Nodes in post-order and back edges, by edge id, of a depth-first search from the roots.
+     */
+    private final int[] postOrder;
+    private final int reachable;
+    private final BitSet backEdges = new BitSet();
+
+    /**
+     * Bound of each node and, for each node, its successor positions by decreasing bound.
+     */
+    private final int[] bound;
+    private final int[] order;
+
+    private final int[] path;
+    private final int[] cursor;
+    private final int[] gain;
+    private final BitSet onPath;
+    private int length = 0;
+
+    private final int[] bestPath;
+    private int bestLength = 0;
+    private int bestGain = 0;
+
+    private PrefixCheck prefixCheck = null;
+    private long deadline = Long.MAX_VALUE;
+    private boolean timedOut = false;
+
+    /**
+     * @param graph The graph.
+     */
+    public CoveragePathEnumerator(PathGraph graph) {
+        this.graph = graph;
+        int size = graph.size();
+        edgeStart = new int[size + 1];
+        for (int node = 0; node < size; node++)
+            edgeStart[node + 1] = edgeStart[node] + graph.successorCount(node);
+        for (int node = 0; node < size; node++) {
+            if (graph.isRelevantBranch(node))
+                goals.set(edgeStart[node], edgeStart[node + 1]);
+            for (int s = 0; s < graph.successorCount(node); s++)
+                if (graph.isRelevant(graph.successor(node, s)))
+                    goals.set(edgeStart[node] + s);
+        }
+        goalCount = goals.cardinality();
+
+        postOrder = new int[size];
+        reachable = depthFirstSearch();
+        bound = new int[size];
+        order = new int[edgeStart[size]];
+
+        path = new int[size + 1];
+        cursor = new int[size + 1];
+        gain = new int[size + 1];
+        onPath = new BitSet(size);
+        bestPath = new int[size + 1];
+    }
+
+    /**
+     * Cuts the edges rejected by a check of the current path, such as {@link PathFeasibility}: only paths accepted by
+     * the check are returned.
+     *
+     * @param prefixCheck A check on a new state, not entered yet.
+     */
+    public void setPrefixCheck(PrefixCheck prefixCheck) {
+        this.prefixCheck = prefixCheck;
+    }
+
+    /**
+     * Stops the search at a given time: {@link #next()} then returns the best path found so far, if it covers a new
+     * goal, and the enumeration is over.
+     *
+     * @param deadline A {@link System#nanoTime()} value.
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Finds the path covering the most goals not covered yet, and marks them covered.
+     *
+     * @return true if a path covering a new goal is available in {@link #path()}, false if the enumeration is over.
+     */
+    public boolean next() {
+        if (timedOut || covered.cardinality() == goalCount)
+            return false;
+        computeBounds();
+        search();
+        if (bestGain == 0)
+            return false;
+        for (int i = 0; i + 1 < bestLength; i++) {
+            int node = bestPath[i];
+            for (int s = 0; s < graph.successorCount(node); s++)
+                if (graph.successor(node, s) == bestPath[i + 1])
+                    covered.set(edgeStart[node] + s);
+        }
+        covered.and(goals);
+        return true;
+    }
+
+    /**
+     * @return The node ids of the current path. The buffer is reused by the next call to {@link #next()}.
+     */
+    public int[] path() {
+        return bestPath;
+    }
+
+    /**
+     * @return The number of nodes of the current path.
+     */
+    public int length() {
+        return bestLength;
+    }
+
+    /**
+     * @return The number of goals covered by the paths returned so far.
+     */
+    public int coveredGoals() {
+        return covered.cardinality();
+    }
+
+    /**
+     * @return The number of goals: the Intent-related edges.
+     */
+    public int goalCount() {
+        return goalCount;
+    }
+
+    /**
+     * @return true if the enumeration was stopped by the deadline.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Runs the branch and bound search from the roots, leaving the best path in {@link #bestPath}.
+     */
+    private void search() {
+        bestGain = 0;
+        bestLength = 0;
+        int steps = 0;
+        int[] roots = graph.roots();
+        int nextRoot = 0;
+
+        while (true) {
+            if (++steps % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                timedOut = true;
+                while (length > 0)
+                    pop();
+                return;
+            }
+
+            int node;
+            int edgeGain;
+            if (length == 0) {
+                if (nextRoot >= roots.length)
+                    return;
+                node = roots[nextRoot++];
+                edgeGain = 0;
+            } else {
+                int top = path[length - 1];
+                int position = cursor[length - 1];
+                if (position >= graph.successorCount(top)) {
+                    pop();
+                    continue;
+                }
+                cursor[length - 1] = position + 1;
+                int s = order[edgeStart[top] + position];
+                node = graph.successor(top, s);
+                edgeGain = isUncoveredGoal(edgeStart[top] + s) ? 1 : 0;
+                if (onPath.get(node))
+                    continue;
+            }
+
+            int prefixGain = (length > 0 ? gain[length - 1] : 0) + edgeGain;
+            if (prefixGain + bound[node] <= bestGain) {
+                // Successors are sorted by decreasing bound: the next ones cannot do better either.
+                if (length > 0)
+                    cursor[length - 1] = graph.successorCount(path[length - 1]);
+                continue;
+            }
+            if (prefixCheck != null && !prefixCheck.enter(length > 0 ? path[length - 1] : -1, node))
+                continue;
+
+            path[length] = node;
+            cursor[length] = 0;
+            gain[length] = prefixGain;
+            onPath.set(node);
+            length++;
+
+            if (graph.isLeaf(node)) {
+                if (prefixGain > bestGain) {
+                    bestGain = prefixGain;
+                    bestLength = length;
+                    System.arraycopy(path, 0, bestPath, 0, length);
+                }
+                pop();
+            }
+        }
+    }
+
+    private void pop() {
+        length--;
+        onPath.clear(path[length]);
+        if (prefixCheck != null)
+            prefixCheck.leave();
+    }
+
+    private boolean isUncoveredGoal(int edge) {
+        return goals.get(edge) && !covered.get(edge);
+    }
+
+    /**
+     * Computes the bound of every node for the goals not covered yet, and sorts the successors of every node by
+     * decreasing bound through their edge.
+     */
+    private void computeBounds() {
+        for (int i = 0; i < reachable; i++) {
+            int node = postOrder[i];
+            int best = 0;
+            for (int s = 0; s < graph.successorCount(node); s++) {
+                int edge = edgeStart[node] + s;
+                if (!backEdges.get(edge))
+                    best = Math.max(best, (isUncoveredGoal(edge) ? 1 : 0) + bound[graph.successor(node, s)]);
+            }
+            bound[node] = best;
+
+            // Insertion sort: successor lists are short.
+            int start = edgeStart[node];
+            int count = graph.successorCount(node);
+            for (int s = 0; s < count; s++) {
+                int potential = potential(node, s);
+                int j = s;
+                while (j > 0 && potential(node, order[start + j - 1]) < potential) {
+                    order[start + j] = order[start + j - 1];
+                    j--;
+                }
+                order[start + j] = s;
+            }
+        }
+    }
+
+    /**
+     * @return The number of uncovered goals reachable through the s-th successor of a node, -1 through a back edge.
+     */
+    private int potential(int node, int s) {
+        int edge = edgeStart[node] + s;
+        if (backEdges.get(edge)) return -1;
+        return (isUncoveredGoal(edge) ? 1 : 0) + bound[graph.successor(node, s)];
+    }
+
+    /**
+     * Iterative depth-first search from the roots, filling {@link #postOrder} and {@link #backEdges}.
+     *
+     * @return The number of nodes reached.
+     */
+    private int depthFirstSearch() {
+        int size = graph.size();
+        byte[] state = new byte[size]; // 0: new, 1: on the stack, 2: done
+        int[] stack = new int[size];
+        int[] position = new int[size];
+        int count = 0;
+
+        for (int root : graph.roots()) {
+            if (state[root] != 0) continue;
+            int depth = 0;
+            stack[0] = root;
+            position[0] = 0;
+            state[root] = 1;
+            while (depth >= 0) {
+                int node = stack[depth];
+                if (position[depth] < graph.successorCount(node)) {
+                    int s = position[depth]++;
+                    int next = graph.successor(node, s);
+                    if (state[next] == 1)
+                        backEdges.set(edgeStart[node] + s);
+                    else if (state[next] == 0) {
+                        state[next] = 1;
+                        stack[++depth] = next;
+                        position[depth] = 0;
+                    }
+                } else {
+                    state[node] = 2;
+                    postOrder[count++] = node;
+                    depth--;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,393 @@
+package org.IntentSymbolicExecution;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A triage of an APK on its dex files, before any Soot work: finds whether the exported activities, or the classes
+ * they call, read the Intent.
+ * <p>
+ * The method id table of each {@code classes*.dex} is scanned first for the Intent getters ({@code Intent.get*Extra},
+ * {@code getExtras}, {@code getAction} and the {@code Bundle.get*} methods): a dex file that does not reference them
+ * cannot call them, so an APK without such a reference is rejected without reading any code. Otherwise, only the
+ * invoke instructions of the exported activities and of the APK classes they call are read.
+ * <p>
+ * The Intent of an exported activity can only be read by the activity itself or by the methods it calls, which the
+ * filtered graphs expand one call deep ({@link FilteredControlFlowGraph}): these are the classes Soot needs bodies for,
+ * and the APK can be skipped if none of them reads the Intent.
+ * <p>
+ * Each dex file is extracted to a temporary file and mapped in memory, instead of being read onto the heap: only the
+ * pages of the tables and of the code that are read get loaded.
+ */
+public class DexTriage {
+
+    private static final Pattern dexEntryPattern = Pattern.compile("classes\\d*\\.dex");
+    private static final Pattern intentGetterPattern = Pattern.compile("get\\w*Extra|getExtras|getAction");
+    private static final String[] getterClasses = {"Landroid/content/Intent;", "Landroid/os/Bundle;", "Landroid/os/BaseBundle;"};
+
+    /**
+     * Length in 16-bit code units of each instruction, by opcode, to step over the instructions of a method without
+     * decoding them. The payloads of the switches and of the array fills start with a nop opcode and are sized apart.
+     */
+    private static final int[] instructionUnits = new int[256];
+
+    static {
+        Arrays.fill(instructionUnits, 1);
+        for (int opcode : new int[]{0x02, 0x05, 0x08, 0x13, 0x15, 0x16, 0x19, 0x1a, 0x1c, 0x1f, 0x20, 0x22, 0x23, 0x29, 0xfe, 0xff})
+            instructionUnits[opcode] = 2;
+        Arrays.fill(instructionUnits, 0x2d, 0x3e, 2);
+        Arrays.fill(instructionUnits, 0x44, 0x6e, 2);
+        Arrays.fill(instructionUnits, 0x90, 0xb0, 2);
+        Arrays.fill(instructionUnits, 0xd0, 0xe3, 2);
+        for (int opcode : new int[]{0x03, 0x06, 0x09, 0x14, 0x17, 0x1b, 0x24, 0x25, 0x26, 0x2a, 0x2b, 0x2c, 0xfc, 0xfd})
+            instructionUnits[opcode] = 3;
+        Arrays.fill(instructionUnits, 0x6e, 0x73, 3);
+        Arrays.fill(instructionUnits, 0x74, 0x79, 3);
+        instructionUnits[0xfa] = 4;
+        instructionUnits[0xfb] = 4;
+        instructionUnits[0x18] = 5;
+    }
+
+    private final List<MappedDex> dexFiles = new ArrayList<>();
+
+    /**
+     * Number of getter references in the method id tables.
+     */
+    private int getterReferences = 0;
+
+    /**
+     * Classes calling a getter, and the APK classes called by each class, by Java name, for the classes whose code
+     * has been read.
+     */
+    private final Set<String> readingClasses = new HashSet<>();
+    private final Map<String, Set<String>> calledClasses = new HashMap<>();
+
+    /**
+     * Maps the dex files of an APK and scans their method id tables.
+     *
+     * @param apkPath The path to the APK file.
+     * @throws IOException If the APK or one of its dex files cannot be read.
+     */
+    public DexTriage(String apkPath) throws IOException {
+        try (ZipFile apk = new ZipFile(apkPath)) {
+            Enumeration<? extends ZipEntry> entries = apk.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!dexEntryPattern.matcher(entry.getName()).matches()) continue;
+                MappedDex dexFile = MappedDex.extract(apk, entry);
+                getterReferences += dexFile.getterReferences();
+                dexFiles.add(dexFile);
+            }
+        }
+    }
+
+    /**
+     * @return The number of references to the Intent getters in the method id tables of the dex files.
+     */
+    public int getGetterReferences() {
+        return getterReferences;
+    }
+
+    /**
+     * @param exportedActivities The names of the exported activities.
+     * @return The exported activities and the APK classes they call, or an empty set if none of them reads the
+     * Intent.
+     */
+    public Set<String> classesToAnalyse(Collection<String> exportedActivities) {
+        if (getterReferences == 0) return Collections.emptySet();
+
+        Set<String> classes = new HashSet<>();
+        boolean readsIntent = false;
+        for (String activity : exportedActivities) {
+            classes.add(activity);
+            classes.addAll(calledClasses(activity));
+        }
+        for (String className : classes) {
+            calledClasses(className);
+            readsIntent |= readingClasses.contains(className);
+        }
+        return readsIntent ? classes : Collections.emptySet();
+    }
+
+    /**
+     * Reads the invoke instructions of a class the first time it is asked for, and records whether it calls a getter.
+     *
+     * @param className The Java name of the class.
+     * @return The APK classes the class calls, empty if the APK does not define it.
+     */
+    private Set<String> calledClasses(String className) {
+        Set<String> called = calledClasses.get(className);
+        if (called != null) return called;
+
+        called = new HashSet<>();
+        String type = "L" + className.replace('.', '/') + ";";
+        for (MappedDex dexFile : dexFiles) {
+            int classDef = dexFile.classDef(type);
+            if (classDef < 0) continue;
+            for (int method : dexFile.invokedMethods(classDef)) {
+                String definingClass = dexFile.typeDescriptor(dexFile.methodClass(method));
+                if (isGetter(definingClass, dexFile.methodName(method)))
+                    readingClasses.add(className);
+                else if (isApkClass(definingClass))
+                    called.add(className(definingClass));
+            }
+            break;
+        }
+        calledClasses.put(className, called);
+        return called;
+    }
+
+    private boolean isApkClass(String type) {
+        for (MappedDex dexFile : dexFiles)
+            if (dexFile.classDef(type) >= 0)
+                return true;
+        return false;
+    }
+
+    private static boolean isGetter(String definingClass, String name) {
+        switch (definingClass) {
+            case "Landroid/content/Intent;":
+                return intentGetterPattern.matcher(name).matches();
+            case "Landroid/os/Bundle;":
+            case "Landroid/os/BaseBundle;":
+                return name.startsWith("get");
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isInvoke(int opcode) {
+        return opcode >= 0x6e && opcode <= 0x72 || opcode >= 0x74 && opcode <= 0x78 || opcode == 0xfa || opcode == 0xfb;
+    }
+
+    /**
+     * @return The Java name of a dex type: {@code Lcom/example/A$1;} is {@code com.example.A$1}.
+     */
+    private static String className(String type) {
+        return type.substring(1, type.length() - 1).replace('/', '.');
+    }
+
+    /**
+     * A dex file mapped in memory, read through the offsets of its header. The string and type id tables are sorted,
+     * so a type is found by binary search.
+     */
+    private static class MappedDex {
+
+        private final ByteBuffer buffer;
+        private final int stringIds;
+        private final int typeIds;
+        private final int typeCount;
+        private final int methodIds;
+        private final int methodCount;
+        private final int classDefs;
+        private final int classDefCount;
+
+        /**
+         * Offset of the class definition of each type, or -1 if the dex file does not define the type. Built on first
+         * use.
+         */
+        private int[] classDefByType;
+
+        /**
+         * Read position of the variable-length values.
+         */
+        private int position;
+
+        /**
+         * Extracts a dex entry of the APK to a temporary file, and maps it.
+         */
+        static MappedDex extract(ZipFile apk, ZipEntry entry) throws IOException {
+            Path file = Files.createTempFile("triage-", ".dex");
+            try {
+                try (InputStream input = apk.getInputStream(entry)) {
+                    Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    return new MappedDex(entry.getName(), channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                }
+            } finally {
+                // The mapping outlives the file where the file system allows it
+                try {
+                    Files.delete(file);
+                } catch (IOException e) {
+                    file.toFile().deleteOnExit();
+                }
+            }
+        }
+
+        private MappedDex(String name, ByteBuffer buffer) throws IOException {
+            this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.capacity() < 0x70 || buffer.getInt(0) != 0x0a786564) // "dex\n"
+                throw new IOException(name + " is not a dex file");
+            stringIds = buffer.getInt(0x3c);
+            typeCount = buffer.getInt(0x40);
+            typeIds = buffer.getInt(0x44);
+            methodCount = buffer.getInt(0x58);
+            methodIds = buffer.getInt(0x5c);
+            classDefCount = buffer.getInt(0x60);
+            classDefs = buffer.getInt(0x64);
+        }
+
+        /**
+         * @return The number of method ids that are getters, resolving the names of the getter classes' methods only.
+         */
+        int getterReferences() {
+            Set<Integer> getterTypes = new HashSet<>();
+            for (String getterClass : getterClasses) {
+                int type = typeIndex(getterClass);
+                if (type >= 0) getterTypes.add(type);
+            }
+            if (getterTypes.isEmpty()) return 0;
+
+            int count = 0;
+            for (int method = 0; method < methodCount; method++) {
+                int type = methodClass(method);
+                if (getterTypes.contains(type) && isGetter(typeDescriptor(type), methodName(method)))
+                    count++;
+            }
+            return count;
+        }
+
+        /**
+         * @return The offset of the class definition of a type, or -1 if the dex file does not define it.
+         */
+        int classDef(String type) {
+            int index = typeIndex(type);
+            if (index < 0) return -1;
+            if (classDefByType == null) {
+                classDefByType = new int[typeCount];
+                Arrays.fill(classDefByType, -1);
+                for (int i = 0; i < classDefCount; i++)
+                    classDefByType[buffer.getInt(classDefs + 32 * i)] = classDefs + 32 * i;
+            }
+            return classDefByType[index];
+        }
+
+        /**
+         * @return The method ids invoked by the methods of a class.
+         */
+        Set<Integer> invokedMethods(int classDef) {
+            Set<Integer> methods = new HashSet<>();
+            int classData = buffer.getInt(classDef + 24);
+            if (classData == 0) return methods;
+
+            position = classData;
+            int fieldCount = readUleb128() + readUleb128();
+            int methodCount = readUleb128() + readUleb128();
+            for (int i = 0; i < 2 * fieldCount; i++)
+                readUleb128();
+            for (int i = 0; i < methodCount; i++) {
+                readUleb128(); // method id difference
+                readUleb128(); // access flags
+                int code = readUleb128();
+                if (code != 0)
+                    addInvokedMethods(code, methods);
+            }
+            return methods;
+        }
+
+        /**
+         * Steps over the instructions of a code item, adding the method id of each invoke.
+         */
+        private void addInvokedMethods(int code, Set<Integer> methods) {
+            int instructions = code + 16;
+            int units = buffer.getInt(code + 12);
+            for (int unit = 0; unit < units; ) {
+                int offset = instructions + 2 * unit;
+                int opcode = buffer.get(offset) & 0xff;
+                if (isInvoke(opcode))
+                    methods.add(unsignedShort(offset + 2));
+                unit += opcode == 0 ? payloadUnits(offset) : instructionUnits[opcode];
+            }
+        }
+
+        /**
+         * @return The length of a nop or of the payload it starts, in code units.
+         */
+        private int payloadUnits(int offset) {
+            switch (buffer.get(offset + 1)) {
+                case 1: // packed-switch: size, first key and the targets
+                    return 4 + 2 * unsignedShort(offset + 2);
+                case 2: // sparse-switch: size, the keys and the targets
+                    return 2 + 4 * unsignedShort(offset + 2);
+                case 3: // fill-array-data: element width, size and the padded elements
+                    return (int) (4 + ((long) unsignedShort(offset + 2) * (buffer.getInt(offset + 4) & 0xffffffffL) + 1) / 2);
+                default:
+                    return 1;
+            }
+        }
+
+        int methodClass(int method) {
+            return unsignedShort(methodIds + 8 * method);
+        }
+
+        String methodName(int method) {
+            return string(buffer.getInt(methodIds + 8 * method + 4));
+        }
+
+        String typeDescriptor(int type) {
+            return string(buffer.getInt(typeIds + 4 * type));
+        }
+
+        /**
+         * @return The index of a type, or -1 if the dex file does not reference it.
+         */
+        private int typeIndex(String type) {
+            int low = 0;
+            int high = typeCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int comparison = typeDescriptor(middle).compareTo(type);
+                if (comparison < 0) low = middle + 1;
+                else if (comparison > 0) high = middle - 1;
+                else return middle;
+            }
+            return -1;
+        }
+
+        /**
+         * Decodes a string of the string data, in modified UTF-8.
+         */
+        private String string(int index) {
+            position = buffer.getInt(stringIds + 4 * index);
+            StringBuilder string = new StringBuilder(readUleb128());
+            for (int b = buffer.get(position++) & 0xff; b != 0; b = buffer.get(position++) & 0xff) {
+                if (b < 0x80) {
+                    string.append((char) b);
+                } else if (b < 0xe0) {
+                    int second = buffer.get(position++) & 0x3f;
+                    string.append((char) ((b & 0x1f) << 6 | second));
+                } else {
+                    int second = buffer.get(position++) & 0x3f;
+                    int third = buffer.get(position++) & 0x3f;
+                    string.append((char) ((b & 0x0f) << 12 | second << 6 | third));
+                }
+            }
+            return string.toString();
+        }
+
+        private int readUleb128() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = buffer.get(position++) & 0xff;
+                value |= (b & 0x7f) << shift;
+                if (b < 0x80) return value;
+            }
+        }
+
+        private int unsignedShort(int offset) {
+            return buffer.getShort(offset) & 0xffff;
+        }
+    }
+}
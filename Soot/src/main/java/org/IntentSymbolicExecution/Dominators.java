@@ -0,0 +1,109 @@
+package org.IntentSymbolicExecution;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Immediate dominators with the Cooper, Harvey and Kennedy iterative algorithm.
+ * <p>
+ * The graph is given as successor and predecessor arrays indexed by node id, so post-dominators are computed by
+ * swapping them and starting from the exit.
+ */
+public class Dominators {
+
+    private Dominators() {
+    }
+
+    /**
+     * Computes the immediate dominator of every node reachable from the entry.
+     *
+     * @param successors   The successors of each node.
+     * @param predecessors The predecessors of each node.
+     * @param entry        The node every path starts from.
+     * @return The immediate dominator of each node, the entry for itself, or -1 for nodes not reachable from the entry.
+     */
+    public static int[] immediateDominators(int[][] successors, int[][] predecessors, int entry) {
+        int size = successors.length;
+        int[] order = new int[size];
+        int[] position = new int[size];
+        Arrays.fill(position, -1);
+        int count = depthFirstOrder(entry, successors, order, position);
+
+        int[] idom = new int[size];
+        Arrays.fill(idom, -1);
+        idom[entry] = entry;
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = count - 2; i >= 0; i--) { // Reverse post-order, skipping the entry.
+                int node = order[i];
+                int newIdom = -1;
+                for (int pred : predecessors[node]) {
+                    if (idom[pred] < 0) continue;
+                    newIdom = newIdom < 0 ? pred : intersect(pred, newIdom, idom, position);
+                }
+                if (newIdom != idom[node]) {
+                    idom[node] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+        return idom;
+    }
+
+    /**
+     * @param idom The immediate dominators returned by {@link #immediateDominators(int[][], int[][], int)}.
+     * @param a    A node id.
+     * @param b    A node id.
+     * @return true if {@code a} dominates {@code b}.
+     */
+    public static boolean dominates(int[] idom, int a, int b) {
+        if (idom[b] < 0) return false;
+        while (b != a) {
+            if (idom[b] == b) return false; // Reached the entry.
+            b = idom[b];
+        }
+        return true;
+    }
+
+    private static int intersect(int a, int b, int[] idom, int[] position) {
+        while (a != b) {
+            while (position[a] < position[b]) a = idom[a];
+            while (position[b] < position[a]) b = idom[b];
+        }
+        return a;
+    }
+
+    /**
+     * Iterative depth-first search recording the post-order of the visited nodes.
+     *
+     * @return The number of visited nodes.
+     */
+    private static int depthFirstOrder(int start, int[][] edges, int[] order, int[] position) {
+        int size = edges.length;
+        int count = 0;
+        int[] stack = new int[size];
+        int[] cursor = new int[size];
+        BitSet visited = new BitSet(size);
+
+        int top = 0;
+        stack[0] = start;
+        visited.set(start);
+        while (top >= 0) {
+            int node = stack[top];
+            if (cursor[node] < edges[node].length) {
+                int next = edges[node][cursor[node]++];
+                if (!visited.get(next)) {
+                    visited.set(next);
+                    stack[++top] = next;
+                }
+            } else {
+                position[node] = count;
+                order[count++] = node;
+                top--;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,445 @@
+package org.IntentSymbolicExecution;
+
+import org.IntentSymbolicExecution.PathConstraints.Statement;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Solves the paths whose Intent constraints are trivial without a solver, and writes their extras as JSON.
+ * <p>
+ * A path is trivial when each of its Intent-related branch conditions compares a single extra with a constant: the
+ * action or a string extra equal or not to a literal (directly or through a relabelled {@code String.equals}), an
+ * extra null or not, a boolean extra true or false, or an integer extra compared with a number. The constraints on each
+ * extra are then a set of allowed values (an interval minus some numbers, a string or anything but some strings) from
+ * which a value is picked, or proven empty. Any other condition makes the path residual: it is left to the SMT stage.
+ * <p>
+ * The output is a single JSON object, streamed path by path:
+ * <pre>
+ * {
+ *   "apkFile": "app.apk", "sdkVersion": 34, "package": "...", "activity": "...", "action": "...",
+ *   "paths": [
+ *     {"path": "path_1", "satisfiable": true, "extras": [{"name": "Op", "type": "string", "value": "*"}, ...]},
+ *     {"path": "path_2", "satisfiable": false},
+ *     ...
+ *   ],
+ *   "residualPaths": ["path_3", ...]
+ * }
+ * </pre>
+ * An extra without a value can take any value, and a null value means that the extra must not be set.
+ */
+public class FastPathSolver {
+
+    /**
+     * What a variable holds on the path being solved.
+     */
+    private enum Source {UNKNOWN, EXTRA, TEST, CONSTANT}
+
+    private final Writer writer;
+    private final PathConstraints constraints;
+
+    /**
+     * Source of each variable and, for extras and tests, the extra; for constants and tests, the literal.
+     */
+    private final Source[] sources;
+    private final ExtraConstraint[] extras;
+    private final String[] literals;
+
+    /**
+     * Whether a condition between constants is false on the path being solved.
+     */
+    private boolean unsatisfiable;
+
+    private final List<String> residualPaths = new ArrayList<>();
+    private int solvedCount = 0;
+    private boolean firstPath = true;
+
+    /**
+     * @param writer      The output.
+     * @param constraints The constraints of the graph the paths come from.
+     */
+    public FastPathSolver(Writer writer, PathConstraints constraints) {
+        this.writer = writer;
+        this.constraints = constraints;
+        this.sources = new Source[constraints.variableCount()];
+        this.extras = new ExtraConstraint[constraints.variableCount()];
+        this.literals = new String[constraints.variableCount()];
+    }
+
+    /**
+     * Writes the start of the JSON object, with the metadata of the method.
+     */
+    public void writeHeader(String apkFileName, int sdkVersion, String packageName, String activity, String action) throws IOException {
+        writer.write(String.format("{\n  \"apkFile\": %s,\n  \"sdkVersion\": %d,\n  \"package\": %s,\n  \"activity\": %s,\n  \"action\": %s,\n  \"paths\": [",
+                json(apkFileName), sdkVersion, json(packageName), json(activity), json(action)));
+    }
+
+    /**
+     * Solves a path and writes its solution if it is trivial.
+     *
+     * @param pathNumber The number of the path, as in the DOT file.
+     * @param path       The node ids of the path.
+     * @param length     The number of nodes of the path.
+     * @return true if the path was solved, false if it is residual.
+     */
+    public boolean write(int pathNumber, int[] path, int length) throws IOException {
+        Map<String, ExtraConstraint> pathExtras = solve(path, length);
+        if (pathExtras == null) {
+            residualPaths.add("path_" + pathNumber);
+            return false;
+        }
+
+        StringJoiner values = new StringJoiner(", ");
+        boolean satisfiable = !unsatisfiable;
+        for (ExtraConstraint extra : pathExtras.values()) {
+            if (!satisfiable) break;
+            String value = extra.value();
+            if (value == null) {
+                satisfiable = false;
+                break;
+            }
+            values.add(String.format("{\"name\": %s, \"type\": %s%s}", json(extra.name), json(extra.type),
+                    value.isEmpty() ? "" : ", \"value\": " + value));
+        }
+        writer.write(firstPath ? "\n" : ",\n");
+        firstPath = false;
+        if (satisfiable)
+            writer.write(String.format("    {\"path\": \"path_%d\", \"satisfiable\": true, \"extras\": [%s]}", pathNumber, values));
+        else
+            writer.write(String.format("    {\"path\": \"path_%d\", \"satisfiable\": false}", pathNumber));
+        solvedCount++;
+        return true;
+    }
+
+    /**
+     * Writes the residual paths and the end of the JSON object.
+     */
+    public void writeFooter() throws IOException {
+        StringJoiner residual = new StringJoiner(", ");
+        for (String pathName : residualPaths)
+            residual.add(json(pathName));
+        writer.write(String.format("%s],\n  \"residualPaths\": [%s]\n}\n", firstPath ? "" : "\n  ", residual));
+    }
+
+    /**
+     * @return The number of paths solved.
+     */
+    public int solvedCount() {
+        return solvedCount;
+    }
+
+    /**
+     * @return The number of residual paths.
+     */
+    public int residualCount() {
+        return residualPaths.size();
+    }
+
+    /**
+     * Follows a path, tracking what each variable holds, and collects the constraints of its branches on the extras.
+     *
+     * @return The constraints of the extras read on the path, in reading order, or null if a condition is not trivial.
+     */
+    private Map<String, ExtraConstraint> solve(int[] path, int length) {
+        Arrays.fill(sources, Source.UNKNOWN);
+        unsatisfiable = false;
+        Map<String, ExtraConstraint> pathExtras = new LinkedHashMap<>();
+
+        for (int i = 0; i < length; i++) {
+            if (i > 0 && constraints.trueSuccessor(path[i - 1]) >= 0) {
+                Statement branch = constraints.statement(path[i - 1]);
+                boolean outcome = path[i] == constraints.trueSuccessor(path[i - 1]);
+                if (!constrain(branch.getLeft(), outcome ? branch.getOperator() : negate(branch.getOperator()), branch.getRight()))
+                    return null;
+            }
+
+            Statement statement = constraints.statement(path[i]);
+            int assigned = statement.getAssigned();
+            if (assigned < 0 || Objects.equals(constraints.variable(String.valueOf(statement.getValue())), assigned))
+                continue;
+            sources[assigned] = Source.UNKNOWN;
+            if (statement.getExtraName() != null) {
+                String key = statement.getExtraName() + " " + statement.getExtraType();
+                sources[assigned] = Source.EXTRA;
+                extras[assigned] = pathExtras.computeIfAbsent(key,
+                        k -> new ExtraConstraint(statement.getExtraName(), statement.getExtraType()));
+            } else if (statement.getValue() != null) {
+                Integer copied = constraints.variable(statement.getValue());
+                if (copied == null) {
+                    literals[assigned] = literal(statement.getValue());
+                    if (literals[assigned] != null)
+                        sources[assigned] = Source.CONSTANT;
+                } else {
+                    sources[assigned] = sources[copied];
+                    extras[assigned] = extras[copied];
+                    literals[assigned] = literals[copied];
+                }
+            } else if (statement.getComparedLeft() != null) {
+                setTest(assigned, statement.getComparedLeft(), statement.getComparedRight());
+                if (sources[assigned] == Source.UNKNOWN)
+                    setTest(assigned, statement.getComparedRight(), statement.getComparedLeft());
+            }
+        }
+        return pathExtras;
+    }
+
+    /**
+     * Makes a variable the test of an extra against a literal, if the operands are an extra and a literal.
+     */
+    private void setTest(int variable, String extraOperand, String literalOperand) {
+        Integer extra = constraints.variable(extraOperand);
+        String literal = literal(literalOperand);
+        if (extra != null && sources[extra] == Source.EXTRA && literal != null) {
+            sources[variable] = Source.TEST;
+            extras[variable] = extras[extra];
+            literals[variable] = literal;
+        }
+    }
+
+    /**
+     * Adds the constraint of a branch outcome, {@code left operator right}.
+     *
+     * @return false if the condition is not trivial.
+     */
+    private boolean constrain(String left, String operator, String right) {
+        if (operator == null) return false;
+        Integer leftVariable = constraints.variable(left);
+        Integer rightVariable = constraints.variable(right);
+        if (leftVariable == null && rightVariable != null)
+            return constrain(right, swap(operator), left);
+
+        String literal = literal(right);
+        if (literal == null) return false;
+        if (leftVariable == null) {
+            String leftLiteral = literal(left);
+            return leftLiteral != null && constantCondition(leftLiteral, operator, literal);
+        }
+
+        switch (sources[leftVariable]) {
+            case EXTRA:
+                return extras[leftVariable].add(operator, literal);
+            case TEST:
+                // A boolean compared with 0 or 1: the test holds or does not.
+                if (!literal.equals("0") && !literal.equals("1") || !operator.equals("==") && !operator.equals("!="))
+                    return false;
+                boolean holds = operator.equals("==") == literal.equals("1");
+                return extras[leftVariable].add(holds ? "==" : "!=", literals[leftVariable]);
+            case CONSTANT:
+                return constantCondition(literals[leftVariable], operator, literal);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks a condition between two literals. A false condition makes the path unsatisfiable.
+     *
+     * @return false if the condition cannot be evaluated.
+     */
+    private boolean constantCondition(String left, String operator, String right) {
+        int comparison;
+        if (PathConstraints.isNumber(left) && PathConstraints.isNumber(right))
+            comparison = Long.compare(number(left), number(right));
+        else if (operator.equals("==") || operator.equals("!="))
+            comparison = left.equals(right) ? 0 : 1;
+        else
+            return false;
+        unsatisfiable |= !compare(comparison, operator);
+        return true;
+    }
+
+    private static boolean compare(int comparison, String operator) {
+        switch (operator) {
+            case "==":
+                return comparison == 0;
+            case "!=":
+                return comparison != 0;
+            case "<":
+                return comparison < 0;
+            case "<=":
+                return comparison <= 0;
+            case ">":
+                return comparison > 0;
+            default:
+                return comparison >= 0;
+        }
+    }
+
+    /**
+     * @return The operand if it is a number, string or null literal, or the literal held by a constant variable, else
+     * null.
+     */
+    private String literal(String operand) {
+        Integer variable = constraints.variable(operand);
+        if (variable != null)
+            return sources[variable] == Source.CONSTANT ? literals[variable] : null;
+        if (operand.equals("null") || PathConstraints.isNumber(operand) || PathConstraints.isString(operand))
+            return operand;
+        return null;
+    }
+
+    private static long number(String literal) {
+        return Long.parseLong(literal.endsWith("L") ? literal.substring(0, literal.length() - 1) : literal);
+    }
+
+    private static String negate(String operator) {
+        switch (operator) {
+            case "==":
+                return "!=";
+            case "!=":
+                return "==";
+            case "<":
+                return ">=";
+            case "<=":
+                return ">";
+            case ">":
+                return "<=";
+            default:
+                return "<";
+        }
+    }
+
+    private static String swap(String operator) {
+        switch (operator) {
+            case "<":
+                return ">";
+            case "<=":
+                return ">=";
+            case ">":
+                return "<";
+            case ">=":
+                return "<=";
+            default:
+                return operator;
+        }
+    }
+
+    /**
+     * @return A JSON string literal.
+     */
+    static String json(String text) {
+        if (text == null) return "null";
+        StringBuilder builder = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\')
+                builder.append('\\').append(c);
+            else if (c < 0x20)
+                builder.append(String.format("\\u%04x", (int) c));
+            else
+                builder.append(c);
+        }
+        return builder.append('"').toString();
+    }
+
+    /**
+     * The values an extra can take on a path.
+     */
+    private static class ExtraConstraint {
+        private final String name;
+        private final String type;
+        private final boolean numeric;
+        private final boolean bool;
+
+        private boolean constrained = false;
+        private boolean mustBeNull = false;
+        private boolean mustNotBeNull = false;
+        private String equal = null;
+        private final Set<String> different = new HashSet<>();
+        private long low;
+        private long high;
+        private final Set<Long> excluded = new HashSet<>();
+
+        ExtraConstraint(String name, String type) {
+            this.name = name;
+            this.type = type;
+            this.bool = type.equals("boolean");
+            this.numeric = bool || type.equals("integer");
+            this.low = bool ? 0 : Integer.MIN_VALUE;
+            this.high = bool ? 1 : Integer.MAX_VALUE;
+        }
+
+        /**
+         * Adds the constraint {@code extra operator literal}.
+         *
+         * @return false if the constraint is not trivial for the type of the extra.
+         */
+        boolean add(String operator, String literal) {
+            constrained = true;
+            if (numeric) {
+                if (!PathConstraints.isNumber(literal)) return false;
+                long value = number(literal);
+                switch (operator) {
+                    case "==":
+                        low = Math.max(low, value);
+                        high = Math.min(high, value);
+                        break;
+                    case "!=":
+                        excluded.add(value);
+                        break;
+                    case "<":
+                        high = Math.min(high, value - 1);
+                        break;
+                    case "<=":
+                        high = Math.min(high, value);
+                        break;
+                    case ">":
+                        low = Math.max(low, value + 1);
+                        break;
+                    default:
+                        low = Math.max(low, value);
+                }
+                return true;
+            }
+
+            if (!operator.equals("==") && !operator.equals("!=")) return false;
+            boolean equals = operator.equals("==");
+            if (literal.equals("null")) {
+                // A value other than null can only be given to strings.
+                if (!equals && !type.equals("string")) return false;
+                if (equals) mustBeNull = true;
+                else mustNotBeNull = true;
+                return true;
+            }
+            if (!PathConstraints.isString(literal) || !type.equals("string")) return false;
+            String text = PathConstraints.unquote(literal);
+            if (equals) {
+                if (equal != null && !equal.equals(text))
+                    low = high + 1; // Two different values: unsatisfiable.
+                equal = text;
+            } else {
+                different.add(text);
+            }
+            return true;
+        }
+
+        /**
+         * @return The JSON value picked for the extra, an empty string if it can take any value, or null if no value
+         * satisfies the constraints.
+         */
+        String value() {
+            if (!constrained) return "";
+            if (low > high) return null;
+            if (numeric) {
+                long start = Math.max(low, Math.min(high, 0));
+                for (long value = start; value <= high && value - start <= excluded.size(); value++)
+                    if (!excluded.contains(value))
+                        return bool ? Boolean.toString(value == 1) : Long.toString(value);
+                for (long value = start - 1; value >= low && start - value <= excluded.size(); value--)
+                    if (!excluded.contains(value))
+                        return bool ? Boolean.toString(value == 1) : Long.toString(value);
+                return null;
+            }
+
+            if (mustBeNull)
+                return mustNotBeNull || equal != null ? null : "null";
+            if (equal != null)
+                return different.contains(equal) ? null : json(equal);
+            for (int i = 0; ; i++) {
+                String candidate = i == 0 ? "" : "a" + i;
+                if (!different.contains(candidate))
+                    return json(candidate);
+            }
+        }
+    }
+}
@@ -3,6 +3,10 @@ package org.IntentSymbolicExecution;
 import org.IntentSymbolicExecution.ControlFlowGraph.GraphNode;
 import org.IntentSymbolicExecution.IntentAnalysis.GlobalVariablesInfo;
 import org.jgrapht.graph.DefaultEdge;
+import soot.SootMethodRef;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.*;
 import soot.toolkits.graph.ExceptionalUnitGraph;
 
 import java.io.IOException;
@@ -89,8 +93,7 @@ public class FilteredControlFlowGraph {
         // Extract nodes that are relevant to Intent-related operations.
         filteredCFG = extractIntentRelatedNodes();
 
-        // Simplify string switch constructs and resolve switch statements.
-        stringSwitchSimplifier();
+        // Resolve switch statements, string switches included.
         switchResolver();
     }
 
@@ -241,23 +244,62 @@ public class FilteredControlFlowGraph {
         return !this.filteredCFG.isEmpty();
     }
 
+    /**
+     * Checks, on the Soot body alone, whether the filtered graph of a method can have Intent-related nodes, before
+     * building it.
+     * <p>
+     * The nodes are seeded by the Intent and Bundle getters and by the {@code getAction} calls
+     * ({@link #extractIntentRelatedNodes()}), of the method or of the methods it calls up to the expansion depth. A
+     * method calling none of them, directly or through these methods, has no Intent-related node.
+     *
+     * @param graph        The control flow graph of the method.
+     * @param otherMethods The control flow graphs of the methods of the application, as given to the constructor.
+     * @return false if the filtered graph of the method is certainly empty.
+     */
+    public static boolean mayHaveExtras(ExceptionalUnitGraph graph, Map<String, ExceptionalUnitGraph> otherMethods) {
+        return mayHaveExtras(graph, otherMethods, 0);
+    }
+
+    private static boolean mayHaveExtras(ExceptionalUnitGraph graph, Map<String, ExceptionalUnitGraph> otherMethods, int depth) {
+        for (Unit unit : graph.getBody().getUnits()) {
+            if (!(unit instanceof Stmt) || !((Stmt) unit).containsInvokeExpr()) continue;
+
+            SootMethodRef method = ((Stmt) unit).getInvokeExpr().getMethodRef();
+            String className = method.getDeclaringClass().getName();
+            if (method.getName().equals("getAction"))
+                return true;
+            if (method.getName().startsWith("get") && (className.equals("android.content.Intent")
+                    || className.equals("android.os.Bundle") || className.equals("android.os.BaseBundle")))
+                return true;
+
+            if (depth < METHODS_CALL_DEPTH) {
+                StringJoiner parameterTypes = new StringJoiner(", ", "(", ")");
+                method.getParameterTypes().forEach(type -> parameterTypes.add(type.toString()));
+                ExceptionalUnitGraph callee = otherMethods.get(className + "." + method.getName() + "-" + parameterTypes);
+                if (callee != null && callee != graph && mayHaveExtras(callee, otherMethods, depth + 1))
+                    return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Replaces occurrences of global variables in the full control flow graph.
      * <p>
      * For each node, it uses a regular expression to detect global variable patterns and,
      * if found, replaces the node's value based on the corresponding global variable info.
      *
-     * @param globalVariables A map of global variable names to their information.
+     * @param globalVariables A map of global variable signatures ({@code <class: type name>}) to their information.
      */
     private void replaceGlobalVariables(Map<String, GlobalVariablesInfo> globalVariables) {
         for (GraphNode vertex : fullGraph.vertexSet()) {
             Matcher matcher = RegexUtils.globalVariablesPattern.matcher(vertex.getValue());
             if (matcher.matches()) {
                 String variable = matcher.group("variable");
-                String varName = matcher.group("varname");
+                String signature = String.format("<%s: %s %s>", matcher.group("package"), matcher.group("type"), matcher.group("varname"));
 
-                if (globalVariables.containsKey(varName)) {
-                    GlobalVariablesInfo globalVariableInfo = globalVariables.get(varName);
+                GlobalVariablesInfo globalVariableInfo = globalVariables.get(signature);
+                if (globalVariableInfo != null) {
                     String variableType = globalVariableInfo.getType();
                     String newNodeValue;
                     if (variableType.toLowerCase().contains("java.lang.string"))
@@ -315,8 +357,8 @@ public class FilteredControlFlowGraph {
 
         for (GraphNode node : graph.vertexSet()) {
             Matcher matcher = patternMethodCall.matcher(node.getValue());
-            // Skip nodes that do not match or start with a lookupswitch.
-            if (!matcher.find() || node.getValue().startsWith("lookupswitch"))
+            // Skip nodes that do not match or are switches.
+            if (!matcher.find() || isSwitch(node.getValue()))
                 continue;
 
             String className = matcher.group("objectType");
@@ -396,7 +438,7 @@ public class FilteredControlFlowGraph {
                         line = line.replace("return ", String.format("%s (%s) = (return.%s) ", assignation, returnedType, assignation));
 //                        line = line.replace("return ", assignation + " (return.) = ");
 
-                    newGraph.addNode(new GraphNode(methodNode.getKey(), line));
+                    newGraph.addNode(new GraphNode(methodNode.getKey(), line, methodNode.getUnit()));
                     methodNodesKey.add(methodNode.getKey());
                 }
             }
@@ -446,90 +488,135 @@ public class FilteredControlFlowGraph {
     /**
      * Extracts nodes related to Intent operations from the full control flow graph.
      * <p>
-     * The method tracks parameters and adds nodes to the filtered CFG if they match Intent extra or action patterns.
+     * The extraction is a worklist taint propagation over def-use chains: the definitions of
+     * {@code get*Extra}/{@code getAction} results seed the worklist, and an inverted index (local name
+     * to the nodes reading it) gives, for every tainted local, the nodes to visit. Each node is visited
+     * at most once and the locals it defines are tainted in turn.
      *
      * @return A map of filtered nodes where the key is the node identifier and the value is the code snippet.
      */
     private Map<String, String> extractIntentRelatedNodes() {
-        // Use a HashSet to track parameter names referenced in the graph.
-        HashSet<String> parametersToTrack = new HashSet<>();
         // Map to store nodes that pass the filtering criteria.
         Map<String, String> filteredNodes = new HashMap<>();
-        // Keep track of the number of tracked parameters to determine when filtering is complete.
-        int startParametersCount;
-        // Flag to indicate when to start adding nodes based on encountering the first relevant Intent/Bundle extra.
-        boolean startAdding;
-
-        do {
-            startParametersCount = parametersToTrack.size();
-            resetGraphContent();
-            startAdding = false;
-
-            // Iterate over each node in the full control flow graph.
-            for (GraphNode node : fullGraph.vertexSet()) {
-                String nodeName = node.getKey();
-                String line = node.getValue();
+        // Inverted index: local name -> nodes that read it.
+        Map<String, List<GraphNode>> usesIndex = new HashMap<>();
+        // Locals already tainted, and the ones whose uses still have to be visited.
+        Set<String> parametersToTrack = new HashSet<>();
+        Deque<String> worklist = new ArrayDeque<>();
 
-                // Check for Intent/Bundle getExtra operations.
-                Matcher extraMatcher = patternExtra.matcher(line);
-                if (extraMatcher.find()) {
-                    startAdding = true;
-                    filteredNodes.put(nodeName, line);
-                    parametersToTrack.add(extraMatcher.group("assignation"));
-                }
+        for (GraphNode node : fullGraph.vertexSet()) {
+            String line = node.getValue();
 
-                // Check for getAction operations.
-                Matcher actionMatcher = patterGetAction.matcher(line);
-                if (actionMatcher.find()) {
-                    startAdding = true;
-                    filteredNodes.put(nodeName, line);
-                    parametersToTrack.add(actionMatcher.group(1));
-                }
+            for (String local : usedLocals(line))
+                usesIndex.computeIfAbsent(local, k -> new ArrayList<>()).add(node);
 
-                // If we have not started adding nodes, continue to next node.
-                if (!startAdding) continue;
+            // Seed with Intent/Bundle getExtra operations.
+            Matcher extraMatcher = patternExtra.matcher(line);
+            if (extraMatcher.find()) {
+                filteredNodes.put(node.getKey(), line);
+                if (parametersToTrack.add(extraMatcher.group("assignation")))
+                    worklist.add(extraMatcher.group("assignation"));
+            }
 
-                // If the current line contains any tracked parameters, add it to the filtered nodes.
-                if (parametersToTrack.stream().anyMatch(line::contains)) {
-                    filteredNodes.put(nodeName, line);
+            // Seed with getAction operations.
+            Matcher actionMatcher = patterGetAction.matcher(line);
+            if (actionMatcher.find()) {
+                filteredNodes.put(node.getKey(), line);
+                if (parametersToTrack.add(actionMatcher.group(1)))
+                    worklist.add(actionMatcher.group(1));
+            }
+        }
 
-                    // Track a new parameter that depends on a saved parameter.
-                    String newParameterName = line.split(" = ")[0];
-                    // Case: $r2 = staticinvoke ... (stores $r2)
-                    if (newParameterName.split(" ").length == 1) {
-                        parametersToTrack.add(newParameterName);
-                        continue;
-                    }
+        // GraphNode does not override hashCode, so this set is identity based.
+        Set<GraphNode> visited = new HashSet<>();
+        while (!worklist.isEmpty()) {
+            String local = worklist.poll();
 
-                    String[] newParametersName = line.split("\\.<")[0].split(" ");
-                    // Case: specialinvoke ... (stores $r9)
-                    if (newParametersName.length == 2) {
-                        newParameterName = newParametersName[1];
-                        parametersToTrack.add(newParameterName);
-                        continue;
-                    }
+            for (GraphNode node : usesIndex.getOrDefault(local, Collections.emptyList())) {
+                if (!visited.add(node)) continue;
 
-                    // For lookup switches, extract the parameter and add all targets.
-                    if (line.startsWith("lookupswitch")) {
-                        Pattern pattern = Pattern.compile("\\(([^)]+)\\)");
-                        Matcher matcher = pattern.matcher(line);
-                        if (matcher.find())
-                            parametersToTrack.add(matcher.group(1));
-
-                        // Add all target nodes of the switch.
-                        for (GraphNode succ : fullGraph.getSuccessorNodes(node)) {
-                            if (!succ.getValue().startsWith("lookupswitch"))
-                                filteredNodes.put(succ.getKey(), succ.getValue());
-                        }
-                        continue;
-                    }
-                }
+                String line = node.getValue();
+                filteredNodes.put(node.getKey(), line);
+
+                // Taint the locals defined by a node that reads a tainted local.
+                for (String definedLocal : definedLocals(line))
+                    if (parametersToTrack.add(definedLocal))
+                        worklist.add(definedLocal);
+
+                // For switches, add all targets of the switch.
+                if (isSwitch(line))
+                    for (GraphNode succ : fullGraph.getSuccessorNodes(node))
+                        if (!isSwitch(succ.getValue()))
+                            filteredNodes.put(succ.getKey(), succ.getValue());
             }
-        } while (startParametersCount < parametersToTrack.size());
+        }
 
         return filteredNodes;
     }
 
+    /**
+     * @return true if the statement label is a {@code lookupswitch} or a {@code tableswitch}.
+     */
+    static boolean isSwitch(String line) {
+        return line.startsWith("lookupswitch") || line.startsWith("tableswitch");
+    }
+
+    /**
+     * Returns the locals read by a statement label.
+     * <p>
+     * String literals are ignored, for an {@code if} only the condition before {@code goto} is considered,
+     * and for a {@code lookupswitch} or {@code tableswitch} only the switch key, since the remaining text is the label
+     * of the targets.
+     *
+     * @param line The statement label.
+     * @return The set of identifiers that occur in the read part of the statement.
+     */
+    static Set<String> usedLocals(String line) {
+        String readPart = line;
+        if (line.startsWith("if") && line.contains(" goto "))
+            readPart = line.substring(0, line.indexOf(" goto "));
+        else if (isSwitch(line) && line.contains(")"))
+            readPart = line.substring(line.indexOf("(") + 1, line.indexOf(")"));
+
+        Set<String> locals = new HashSet<>();
+        Matcher matcher = localTokenPattern.matcher(stringLiteralPattern.matcher(readPart).replaceAll("\"\""));
+        while (matcher.find())
+            locals.add(matcher.group());
+        return locals;
+    }
+
+    /**
+     * Returns the locals defined by a statement label.
+     * <p>
+     * Handles plain and typed assignments ({@code $r2 = ...}, {@code $r2 (int) = ...}) and calls that
+     * update their receiver ({@code specialinvoke $r9.<...: void <init>(...)>($r2)}), as well as array stores.
+     *
+     * @param line The statement label.
+     * @return The list of defined locals (possibly empty).
+     */
+    static List<String> definedLocals(String line) {
+        if (line.startsWith("if") || isSwitch(line))
+            return Collections.emptyList();
+
+        Matcher assignationMatcher = assignationPattern.matcher(line);
+        if (assignationMatcher.find()) {
+            String assignation = assignationMatcher.group("assignation").trim();
+            if (!assignation.equals("null") && !assignation.contains(" "))
+                return List.of(assignation);
+            return Collections.emptyList();
+        }
+
+        // Array store: $r1[i0] = $r2 taints the array.
+        if (line.contains("] = ") && line.indexOf('[') > 0 && localTokenPattern.matcher(line.substring(0, line.indexOf('['))).matches())
+            return List.of(line.substring(0, line.indexOf('[')));
+
+        Matcher receiverMatcher = receiverCallPattern.matcher(line);
+        if (receiverMatcher.find())
+            return List.of(receiverMatcher.group("receiver"));
+
+        return Collections.emptyList();
+    }
+
     /**
      * Resolves "goto" statements in the graph by updating the corresponding node values.
      * <p>
@@ -600,227 +687,229 @@ public class FilteredControlFlowGraph {
     }
 
     /**
-     * Simplifies string switch constructs by modifying their representation.
+     * Resolves switch statements in the control flow graph by converting them into a series of conditional branches.
+     * <p>
+     * The cases and targets of a switch are read from its Soot statement ({@link LookupSwitchStmt} or
+     * {@link TableSwitchStmt}), and each target is matched to a successor of the node by its statement, so the switch is
+     * lowered in time linear in its number of cases: the switch node becomes the branch of the first case, each other
+     * case gets a new branch reached when the previous one fails, and the last one fails to the default target. Cases
+     * jumping to the default target are not lowered.
      * <p>
-     * This method processes nodes starting with "lookupswitch(" and, if a preceding hashCode() call is detected,
-     * constructs a new string representation for the switch statement. It also removes associated nodes.
+     * A string switch compiled to a switch on {@code hashCode()} followed by {@code equals} calls is lowered on the
+     * string: each case compares it with the string its target is compared with, and the {@code hashCode()} node is
+     * removed.
      */
-    private void stringSwitchSimplifier() {
-        List<GraphNode> nodesToRemove = new ArrayList<>();
-
-        for (GraphNode node : fullGraph.vertexSet()) {
+    public void switchResolver() {
+        List<GraphNode> switchNodes = new ArrayList<>();
+        for (GraphNode node : fullGraph.vertexSet())
+            if (node.getUnit() instanceof SwitchStmt)
+                switchNodes.add(node);
+
+        List<GraphNode> hashNodes = new ArrayList<>();
+        for (GraphNode node : switchNodes) {
+            SwitchStmt switchStmt = (SwitchStmt) node.getUnit();
             String line = node.getValue();
-            if (line.startsWith("lookupswitch(") && fullGraph.getPredecessorNodes(node).size() == 1) {
-                GraphNode firstPred = fullGraph.getPredecessorNodes(node).stream().findFirst().orElse(null);
-                if (firstPred == null) continue;
-
-                String hashCall = firstPred.getValue();
-                if (hashCall.endsWith(".hashCode()")) {
-                    // Extract parameters from the hash call.
-                    String strParameter = hashCall.substring(hashCall.lastIndexOf(" ") + 1, hashCall.indexOf(".hashCode()"));
-                    String intParameter = hashCall.substring(0, hashCall.indexOf(" "));
-                    nodesToRemove.add(firstPred);
-
-                    // Parse the case string and default branch.
-                    String caseString = line.substring(line.indexOf("{") + 1, line.indexOf("default:"));
-                    String defaultString = line.substring(line.indexOf("default:") + ("default:").length(), line.lastIndexOf("; }"));
-
-                    Matcher matcher = casePattern.matcher(caseString);
-                    StringBuilder newLine = new StringBuilder(String.format("lookupswitch(%s) {", strParameter));
-                    while (matcher.find()) {
-                        if (matcher.group("equals") == null) continue;
-                        newLine.append(String.format(" case %s: %s; ", matcher.group("equals"), matcher.group("goto")));
-                    }
-                    newLine.append(String.format("default: %s; ", defaultString.trim()));
-                    newLine.append("}");
-                    fullGraph.replaceVertex(node.getKey(), newLine.toString());
+            // The key as written in the label, where the locals of inlined methods are renamed.
+            String variableName = line.substring(line.indexOf("(") + 1, line.indexOf(")"));
+
+            // Detect the hashCode() call of a string switch.
+            GraphNode hashNode = null;
+            Set<GraphNode> predecessors = fullGraph.getPredecessorNodes(node);
+            if (predecessors.size() == 1) {
+                GraphNode pred = predecessors.iterator().next();
+                String hashCall = pred.getValue();
+                if (isHashCodeOf(pred.getUnit(), switchStmt.getKey()) && hashCall.endsWith(".hashCode()")) {
+                    hashNode = pred;
+                    variableName = hashCall.substring(hashCall.lastIndexOf(" ") + 1, hashCall.indexOf(".hashCode()"));
                 }
             }
-        }
 
-        // Remove the nodes that were marked for removal.
-        for (GraphNode node : nodesToRemove)
-            fullGraph.removeVertex(node);
-    }
+            Map<Unit, GraphNode> successors = new HashMap<>();
+            for (GraphNode succ : fullGraph.getSuccessorNodes(node))
+                successors.put(succ.getUnit(), succ);
+            GraphNode defaultNode = successors.get(resolveGoto(switchStmt.getDefaultTarget()));
 
-    /**
-     * Resolves switch statements in the control flow graph by converting them into a series of conditional branches.
-     * <p>
-     * This method processes nodes starting with "lookupswitch(", extracts case values and their targets,
-     * and rebuilds the graph using if-else style branches.
-     */
-    public void switchResolver() {
-        // Create a temporary filtered graph for processing switch statements.
-        FilteredControlFlowGraph switchCFG = new FilteredControlFlowGraph(this, fullGraph, filteredCFG);
+            List<Map.Entry<String, GraphNode>> cases = new ArrayList<>();
+            for (int i = 0; i < switchStmt.getTargets().size(); i++) {
+                Unit target = resolveGoto(switchStmt.getTarget(i));
+                GraphNode caseNode = successors.get(target);
+                if (caseNode == null || caseNode == defaultNode)
+                    continue;
 
-        for (GraphNode node : fullGraph.vertexSet()) {
-            String line = node.getValue();
+                String caseValue;
+                if (hashNode != null)
+                    caseValue = equalsArgument(target);
+                else if (switchStmt instanceof LookupSwitchStmt)
+                    caseValue = Integer.toString(((LookupSwitchStmt) switchStmt).getLookupValue(i));
+                else
+                    caseValue = Integer.toString(((TableSwitchStmt) switchStmt).getLowIndex() + i);
+                if (caseValue != null)
+                    cases.add(Map.entry(caseValue, caseNode));
+            }
+            if (cases.isEmpty())
+                continue;
+            if (hashNode != null)
+                hashNodes.add(hashNode);
+
+            boolean filtered = filteredCFG.containsKey(node.getKey());
+            for (DefaultEdge edge : new ArrayList<>(fullGraph.getSuccessorEdges(node)))
+                fullGraph.removeEdge(edge);
+
+            GraphNode previous = null;
+            for (int i = 0; i < cases.size(); i++) {
+                GraphNode caseNode = cases.get(i).getValue();
+                // Build the if-condition string for the current case.
+                String nodeText = String.format("if %s==%s goto %s", variableName, cases.get(i).getKey(), caseNode.getValue());
+                GraphNode caseBranch;
+                if (previous == null) {
+                    // For the first switch element, the switch node itself.
+                    caseBranch = fullGraph.replaceVertex(node.getKey(), nodeText);
+                } else {
+                    // For subsequent switch elements, create a new node.
+                    caseBranch = new GraphNode(node.getKey() + "_" + i, nodeText);
+                    fullGraph.addNode(caseBranch);
+                    fullGraph.addEdge(previous, caseBranch);
+                }
+                fullGraph.addEdge(caseBranch, caseNode);
+                if (filtered) {
+                    filteredCFG.put(caseBranch.getKey(), caseBranch.getValue());
+                    filteredCFG.put(caseNode.getKey(), caseNode.getValue());
+                }
+                previous = caseBranch;
+            }
 
-            if (line.startsWith("lookupswitch(")) {
-                boolean filtered = filteredCFG.containsKey(node.getKey());
-                // Extract the variable used in the switch statement.
-                String variableName = line.substring(line.indexOf("(") + 1, line.indexOf(")"));
-                String caseString = line.substring(line.indexOf("{") + 1, line.indexOf("default:"));
-
-                String defaultString = null;
-                if (line.contains("default:") && line.contains("; }") && (line.indexOf("default:") < line.lastIndexOf("; }")))
-                    defaultString = line.substring(line.indexOf("default: ") + ("default: ").length(), line.lastIndexOf("; }"));
-
-                Pattern pattern = Pattern.compile("case (.*?): (.*?);");
-                Matcher matcher = pattern.matcher(caseString);
-                List<Map.Entry<String, String>> extractedCases = new ArrayList<>();
-                while (matcher.find())
-                    extractedCases.add(Map.entry(matcher.group(1), matcher.group(2).trim()));
-
-                if (defaultString != null)
-                    extractedCases.add(Map.entry(defaultString, defaultString));
-
-                Set<GraphNode> succsList = fullGraph.getSuccessorNodes(node);
-                List<GraphNode> succEntryList = new ArrayList<>();
-                GraphNode defaultNode = null;
-
-                for (Map.Entry<String, String> caseEntry : extractedCases) {
-                    GraphNode caseNode = null;
-                    String caseText = caseEntry.getValue().replaceFirst("goto ", "").trim();
-
-                    for (GraphNode succ : succsList) {
-                        if (succ.getValue().contains(caseText)) {
-                            caseNode = succ;
-                            break;
-                        }
-                    }
+            if (defaultNode == null)
+                continue;
 
-                    if (caseNode == null)
-                        continue;
+            fullGraph.addEdge(previous, defaultNode);
+            if (filtered)
+                filteredCFG.put(defaultNode.getKey(), defaultNode.getValue());
+        }
 
-                    if (defaultString != null && caseNode.getValue().equals(defaultString.replaceFirst("goto ", "").trim())) {
-                        defaultNode = caseNode;
-                        continue;
-                    }
+        // Remove the hashCode() nodes of the string switches.
+        for (GraphNode node : hashNodes) {
+            filteredCFG.remove(node.getKey());
+            fullGraph.removeVertex(node);
+        }
+    }
 
-                    // Build the if-condition string for the current case.
-                    String nodeText = "if " + variableName + "==" + caseEntry.getKey() + " " + caseEntry.getValue();
-                    if (succEntryList.isEmpty()) { // For the first switch element.
-                        GraphNode newNode = switchCFG.fullGraph.replaceVertex(node.getKey(), nodeText);
-                        succEntryList.add(newNode);
-
-                        // Remove edges that do not correspond to the current case.
-                        Set<DefaultEdge> edgesToRemove = new HashSet<>(switchCFG.fullGraph.getSuccessorEdges(switchCFG.fullGraph.findNodeByKey(node.getKey())));
-                        for (DefaultEdge defaultEdge : edgesToRemove)
-                            if (!switchCFG.fullGraph.getEdgeTarget(defaultEdge).getValue().equals(caseText))
-                                switchCFG.fullGraph.removeEdge(defaultEdge);
-                    } else {
-                        // For subsequent switch elements, create a new node.
-                        GraphNode vertex = new GraphNode("node" + Math.abs(nodeText.hashCode()), nodeText);
-                        succEntryList.add(vertex);
-                        switchCFG.fullGraph.addNode(vertex);
-                        switchCFG.fullGraph.addEdge(succEntryList.get(succEntryList.size() - 2), vertex);
-                        if (filtered)
-                            switchCFG.filteredCFG.put(vertex.getKey(), vertex.getValue());
-                    }
-                    switchCFG.fullGraph.addNode(caseNode);
-                    switchCFG.fullGraph.addEdge(succEntryList.get(succEntryList.size() - 1), caseNode);
-                    if (filtered)
-                        switchCFG.filteredCFG.put(caseNode.getKey(), caseNode.getValue());
-                }
+    /**
+     * @return true if the statement assigns the {@code hashCode()} of an object to the given local.
+     */
+    private static boolean isHashCodeOf(Unit unit, Value local) {
+        if (!(unit instanceof AssignStmt) || ((AssignStmt) unit).getLeftOp() != local
+                || !(((AssignStmt) unit).getRightOp() instanceof InstanceInvokeExpr))
+            return false;
+        InstanceInvokeExpr invoke = (InstanceInvokeExpr) ((AssignStmt) unit).getRightOp();
+        return invoke.getMethodRef().getName().equals("hashCode") && invoke.getArgCount() == 0;
+    }
 
-                if (defaultNode == null)
-                    continue;
+    /**
+     * @return The string literal an {@code equals} call of the statement compares with, as written in Jimple, or null
+     * if the statement is not such a call.
+     */
+    private static String equalsArgument(Unit unit) {
+        if (!(unit instanceof AssignStmt) || !(((AssignStmt) unit).getRightOp() instanceof InstanceInvokeExpr))
+            return null;
+        InstanceInvokeExpr invoke = (InstanceInvokeExpr) ((AssignStmt) unit).getRightOp();
+        if (!invoke.getMethodRef().getName().equals("equals") || invoke.getArgCount() != 1
+                || !(invoke.getArg(0) instanceof StringConstant))
+            return null;
+        return invoke.getArg(0).toString();
+    }
 
-                switchCFG.fullGraph.addNode(defaultNode);
-                switchCFG.fullGraph.addEdge(succEntryList.get(succEntryList.size() - 1), defaultNode);
-                if (filtered)
-                    switchCFG.filteredCFG.put(defaultNode.getKey(), defaultNode.getValue());
-            }
-        }
-        // Update the full graph and filtered CFG based on the processed switch.
-        this.fullGraph = switchCFG.fullGraph;
-        this.filteredCFG = switchCFG.filteredCFG;
+    /**
+     * @return The first statement reached from a statement that is not a goto, as the goto nodes are removed from the
+     * graph.
+     */
+    private static Unit resolveGoto(Unit unit) {
+        Set<Unit> visited = new HashSet<>();
+        while (unit instanceof GotoStmt && visited.add(unit))
+            unit = ((GotoStmt) unit).getTarget();
+        return unit;
     }
 
     /**
      * Simplifies the control flow graph by relabeling nodes and removing unnecessary edges.
      * <p>
-     * This method processes nodes to transform method call representations into a simpler, more readable form,
-     * and then updates all node labels accordingly.
+     * This method processes nodes to transform method call representations into a simpler, more readable form.
+     * Each label is simplified once, from its own statement ({@link #relabel(String)}).
      */
     private void lableRenameGraphNodes() {
-        List<Map.Entry<String, String>> nodesRelabeled = new ArrayList<>();
+        for (GraphNode node : fullGraph.vertexSet())
+            node.setNodeValue(relabel(node.getValue()));
+    }
 
-        // Iterate over each node to build a mapping of original labels to simplified labels.
-        for (GraphNode node : fullGraph.vertexSet()) {
-            String nodeLabel = node.getValue();
-            String newNodeLabel;
-
-            Matcher matcher = RegexUtils.patternMethodCall.matcher(nodeLabel);
-            Matcher matcher2 = RegexUtils.thisCallPattern.matcher(nodeLabel);
-            Matcher matcher3 = RegexUtils.variableCallPattern.matcher(nodeLabel);
-            Matcher mathcer4 = RegexUtils.voidMethodCallPattern.matcher(nodeLabel);
-            if (matcher2.find()) {
-                String thisObject = matcher2.group(1);
-                //String packageName = matcher2.group(2);
-                String type = matcher2.group(3);
-                String varName = matcher2.group(4);
-                String newObject = matcher2.group(5);
-                if (!thisObject.contains("if ")) {
-                    newNodeLabel = String.format("%s_this_%s (%s) = %s", thisObject, varName, type, newObject);
-                    nodesRelabeled.add(Map.entry(nodeLabel, newNodeLabel));
-                }
-            } else if (matcher3.find()) {
-                String assignation = matcher3.group(1);
-                String object = matcher3.group(2);
-                String objectType = matcher3.group(3);
-                String returnedType = matcher3.group(4);
-                String varName = matcher3.group(5);
-                if (object.equals("r0"))
-                    newNodeLabel = String.format("%s (%s) = %s_this_%s", assignation, returnedType, object, varName);
-                else
-                    newNodeLabel = String.format("%s (%s) = (%s) %s.%s", assignation, returnedType, objectType, object, varName);
-                nodesRelabeled.add(Map.entry(nodeLabel, newNodeLabel));
-            } else if (mathcer4.find()) {
-                String object = mathcer4.group(2);
-                String objectType = mathcer4.group(3);
-                String method = mathcer4.group(4);
-                //String paramsType = mathcer4.group(5);
-                String params = mathcer4.group(6);
-                newNodeLabel = String.format("(%s) %s.%s(%s)", objectType, object, method, params);
-                nodesRelabeled.add(Map.entry(nodeLabel, newNodeLabel));
-            } else if (matcher.find()) {
-                String assignation = matcher.group("assignation");
-                String invoke = matcher.group("invoke");
-                String object = matcher.group("object");
-                String objectType = matcher.group("objectType");
-                String returnedType = matcher.group("returnedType");
-                String method = matcher.group("method");
-                String argument = matcher.group("argument");
-                if (method.equals("equals") || method.equals("areEqual")) {
-                    newNodeLabel = String.format("%s = %s == %s", assignation, object, argument);
-                    if (object == null) {
-                        String arg1 = argument.split(", ")[0];
-                        String arg2 = argument.split(", ")[1];
-                        newNodeLabel = String.format("%s = %s == %s", assignation, arg1, arg2);
-                    }
-                } else if (invoke == null)
-                    newNodeLabel = String.format("%s (%s) = %s.%s", assignation, returnedType, object, method);
-                else if ((invoke.equals("virtualinvoke") || invoke.equals("specialinvoke") || invoke.equals("interfaceinvoke")) && object != null && assignation != null)
-                    newNodeLabel = String.format("%s (%s) = (%s) %s.%s(%s)", assignation, returnedType, objectType, object, method, argument);
-                else if (invoke != null && object == null && assignation != null)
-                    newNodeLabel = String.format("%s (%s) = (%s).%s(%s)", assignation, returnedType, objectType, method, argument);
-                else if (assignation == null)
-                    newNodeLabel = String.format("(%s) (%s).%s(%s)", returnedType, objectType, method, argument);
-                else
-                    newNodeLabel = nodeLabel;
-                nodesRelabeled.add(Map.entry(nodeLabel, newNodeLabel));
-            }
+    /**
+     * Returns the simplified label of a statement label.
+     * <p>
+     * For a branch, the condition is kept and the label of the target is simplified as the target node is, so that it
+     * stays equal to the label of the target node.
+     *
+     * @param nodeLabel The statement label.
+     * @return The simplified label, or the label itself if it has no simplified form.
+     */
+    static String relabel(String nodeLabel) {
+        if (nodeLabel.startsWith("if") && nodeLabel.contains(" goto ")) {
+            int target = nodeLabel.indexOf(" goto ") + " goto ".length();
+            while (nodeLabel.startsWith("goto ", target))
+                target += "goto ".length();
+            return nodeLabel.substring(0, target) + relabel(nodeLabel.substring(target));
         }
 
-        // Update each node in the graph with the new simplified labels.
-        for (GraphNode node : fullGraph.vertexSet()) {
-            String nodeLabel = node.getValue();
-            for (Map.Entry<String, String> nodeRelabeled : nodesRelabeled)
-                nodeLabel = nodeLabel.replace(nodeRelabeled.getKey(), nodeRelabeled.getValue());
-            fullGraph.replaceVertex(node.getKey(), nodeLabel);
+        Matcher matcher = RegexUtils.patternMethodCall.matcher(nodeLabel);
+        Matcher matcher2 = RegexUtils.thisCallPattern.matcher(nodeLabel);
+        Matcher matcher3 = RegexUtils.variableCallPattern.matcher(nodeLabel);
+        Matcher mathcer4 = RegexUtils.voidMethodCallPattern.matcher(nodeLabel);
+        if (matcher2.find()) {
+            String thisObject = matcher2.group(1);
+            //String packageName = matcher2.group(2);
+            String type = matcher2.group(3);
+            String varName = matcher2.group(4);
+            String newObject = matcher2.group(5);
+            if (!thisObject.contains("if "))
+                return String.format("%s_this_%s (%s) = %s", thisObject, varName, type, newObject);
+        } else if (matcher3.find()) {
+            String assignation = matcher3.group(1);
+            String object = matcher3.group(2);
+            String objectType = matcher3.group(3);
+            String returnedType = matcher3.group(4);
+            String varName = matcher3.group(5);
+            if (object.equals("r0"))
+                return String.format("%s (%s) = %s_this_%s", assignation, returnedType, object, varName);
+            return String.format("%s (%s) = (%s) %s.%s", assignation, returnedType, objectType, object, varName);
+        } else if (mathcer4.find()) {
+            String object = mathcer4.group(2);
+            String objectType = mathcer4.group(3);
+            String method = mathcer4.group(4);
+            //String paramsType = mathcer4.group(5);
+            String params = mathcer4.group(6);
+            return String.format("(%s) %s.%s(%s)", objectType, object, method, params);
+        } else if (matcher.find()) {
+            String assignation = matcher.group("assignation");
+            String invoke = matcher.group("invoke");
+            String object = matcher.group("object");
+            String objectType = matcher.group("objectType");
+            String returnedType = matcher.group("returnedType");
+            String method = matcher.group("method");
+            String argument = matcher.group("argument");
+            if (method.equals("equals") || method.equals("areEqual")) {
+                if (object == null) {
+                    String arg1 = argument.split(", ")[0];
+                    String arg2 = argument.split(", ")[1];
+                    return String.format("%s = %s == %s", assignation, arg1, arg2);
+                }
+                return String.format("%s = %s == %s", assignation, object, argument);
+            } else if (invoke == null)
+                return String.format("%s (%s) = %s.%s", assignation, returnedType, object, method);
+            else if ((invoke.equals("virtualinvoke") || invoke.equals("specialinvoke") || invoke.equals("interfaceinvoke")) && object != null && assignation != null)
+                return String.format("%s (%s) = (%s) %s.%s(%s)", assignation, returnedType, objectType, object, method, argument);
+            else if (invoke != null && object == null && assignation != null)
+                return String.format("%s (%s) = (%s).%s(%s)", assignation, returnedType, objectType, method, argument);
+            else if (assignation == null)
+                return String.format("(%s) (%s).%s(%s)", returnedType, objectType, method, argument);
         }
+        return nodeLabel;
     }
 
     /**
@@ -0,0 +1,147 @@
+package org.IntentSymbolicExecution;
+
+import java.util.*;
+
+/**
+ * Slices a control flow graph on the Intent-related nodes before path enumeration.
+ * <p>
+ * A branch is collapsed when it is not Intent related and no Intent-related node is control dependent on it, that is
+ * when no such node lies between the branch and its immediate post-dominator. Every path through the region of such
+ * a branch highlights the same nodes, so enumerating a single successor of the branch is enough: the others would
+ * only produce paths that are discarded as duplicates. Branches that belong to a loop are never collapsed, and neither
+ * are the ones leading to a sink, which {@link SinkFilter} only takes among the Intent-related nodes.
+ * <p>
+ * The kept successor is the one with the shortest route to the post-dominator, and among those the first in program
+ * order (the lowest node id), so the written paths do not depend on the order of the edges of the graph.
+ */
+public class GraphSlicer {
+
+    private final PathGraph graph;
+
+    /**
+     * Successors and predecessors by node id. The id {@code graph.size()} is a virtual exit joining every leaf.
+     */
+    private final int[][] successors;
+    private final int[][] predecessors;
+    private final int exit;
+
+    /**
+     * Slices the given graph.
+     *
+     * @param graph The graph to slice.
+     * @return A view of the graph where every collapsed branch keeps a single successor.
+     */
+    public static PathGraph slice(PathGraph graph) {
+        return new GraphSlicer(graph).collapse();
+    }
+
+    private GraphSlicer(PathGraph graph) {
+        this.graph = graph;
+        exit = graph.size();
+
+        successors = new int[exit + 1][];
+        int[] predecessorCount = new int[exit + 1];
+        for (int node = 0; node < exit; node++) {
+            successors[node] = graph.isLeaf(node) ? new int[]{exit} : graph.successors(node);
+            for (int succ : successors[node])
+                predecessorCount[succ]++;
+        }
+        successors[exit] = new int[0];
+
+        predecessors = new int[exit + 1][];
+        for (int node = 0; node <= exit; node++)
+            predecessors[node] = new int[predecessorCount[node]];
+        for (int node = 0; node < exit; node++)
+            for (int succ : successors[node])
+                predecessors[succ][--predecessorCount[succ]] = node;
+    }
+
+    private PathGraph collapse() {
+        BitSet relevant = new BitSet();
+        for (int node = 0; node < exit; node++)
+            if (graph.isRelevant(node))
+                relevant.set(node);
+
+        // Post-dominators are the dominators of the reverse graph, rooted at the virtual exit.
+        int[] postDominators = Dominators.immediateDominators(predecessors, successors, exit);
+        BitSet self = new BitSet();
+
+        int[][] slicedSuccessors = new int[exit][];
+        for (int branch = 0; branch < exit; branch++) {
+            slicedSuccessors[branch] = graph.successors(branch);
+            if (successors[branch].length < 2 || relevant.get(branch)) continue;
+            if (postDominators[branch] < 0) continue;
+            // A branch that can reach itself belongs to a loop.
+            self.clear();
+            self.set(branch);
+            if (regionIntersects(branch, -1, self)) continue;
+            if (regionIntersects(branch, postDominators[branch], relevant)) continue;
+
+            slicedSuccessors[branch] = new int[]{shortestRoute(branch, postDominators[branch])};
+        }
+        return graph.withSuccessors(slicedSuccessors);
+    }
+
+    /**
+     * @return The successor of a branch with the fewest nodes to its post-dominator, the lowest id among equals.
+     */
+    private int shortestRoute(int branch, int postDominator) {
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int succ : successors[branch]) {
+            int distance = distance(succ, postDominator);
+            if (distance < bestDistance || (distance == bestDistance && succ < best)) {
+                best = succ;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The number of edges of the shortest route from a node to its post-dominator, found breadth first. Every
+     * route from the node reaches the post-dominator, so only the region before it is searched.
+     */
+    private int distance(int from, int postDominator) {
+        if (from == postDominator) return 0;
+        BitSet visited = new BitSet();
+        visited.set(from);
+        int[] queue = {from};
+        for (int distance = 1; queue.length > 0; distance++) {
+            int[] next = new int[0];
+            int count = 0;
+            for (int node : queue)
+                for (int succ : successors[node]) {
+                    if (succ == postDominator) return distance;
+                    if (visited.get(succ)) continue;
+                    visited.set(succ);
+                    if (count == next.length)
+                        next = Arrays.copyOf(next, Math.max(4, count * 2));
+                    next[count++] = succ;
+                }
+            queue = Arrays.copyOf(next, count);
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Checks whether a node of the region controlled by a branch (the nodes reachable from it before its
+     * immediate post-dominator) is in the given set. With a post-dominator of -1 the whole reachable part is searched.
+     */
+    private boolean regionIntersects(int branch, int postDominator, BitSet set) {
+        BitSet visited = new BitSet();
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (int succ : successors[branch])
+            stack.push(succ);
+
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            if (node == postDominator || visited.get(node)) continue;
+            if (set.get(node)) return true;
+            visited.set(node);
+            for (int succ : successors[node])
+                stack.push(succ);
+        }
+        return false;
+    }
+}
@@ -67,6 +67,18 @@ public class IntentAnalysis {
      *                       If null, the appropriate SDK JAR will be downloaded automatically.
      */
     public IntentAnalysis(String apkPath, String androidJarPath) {
+        this(apkPath, androidJarPath, new AnalysisOptions());
+    }
+
+    /**
+     * Constructor that initializes the analysis for a given APK file.
+     *
+     * @param apkPath        The path to the APK file to be analyzed.
+     * @param androidJarPath The path to the Android SDK JAR file corresponding to the APK's SDK version.
+     *                       If null, the appropriate SDK JAR will be downloaded automatically.
+     * @param options        The options of the analysis.
+     */
+    public IntentAnalysis(String apkPath, String androidJarPath, AnalysisOptions options) {
         // Parse the APK's AndroidManifest.xml to retrieve metadata
 
         long startManifestParsingTime = System.currentTimeMillis();
@@ -83,6 +95,26 @@ public class IntentAnalysis {
         int numExportedActivities = exportedActivities.size();
         String packageName = manifest.getPackageName();
 
+        // Scan the dex files for Intent reads, to skip the APK or limit the classes Soot builds bodies for
+        Set<String> classesToAnalyse = null;
+        if (options.isDexTriage()) {
+            long startTriageTime = System.currentTimeMillis();
+            try {
+                Set<String> exportedActivityNames = new HashSet<>();
+                for (ManifestParsing.Activity exportedActivity : exportedActivities)
+                    exportedActivityNames.add(exportedActivity.getName());
+                classesToAnalyse = new DexTriage(apkPath).classesToAnalyse(exportedActivityNames);
+                System.out.println("Dex triage completed in " + (System.currentTimeMillis() - startTriageTime) + " ms.");
+                if (classesToAnalyse.isEmpty()) {
+                    System.out.println("No exported activity reads extras from the intents. Skipping the APK.");
+                    return;
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Dex triage failed, analysing all the classes: " + e.getMessage());
+                classesToAnalyse = null;
+            }
+        }
+
         // Download the corresponding Android SDK JAR and get its path
         if (androidJarPath == null)
             androidJarPath = (new AndroidJarDownloader(SDK_Version)).getAndroidJarsPath();
@@ -105,6 +137,14 @@ public class IntentAnalysis {
         System.out.println();
         System.out.println("Global variables founded: " + globalVariables.size());
 
+        // Soot builds bodies for the application classes only. The globals are resolved first, since the class
+        // initializers of the demoted classes can no longer be read
+        if (classesToAnalyse != null) {
+            for (SootClass sootClass : new ArrayList<>(Scene.v().getApplicationClasses()))
+                if (!classesToAnalyse.contains(sootClass.getName()))
+                    sootClass.setLibraryClass();
+        }
+
         // Compute the Control Flow Graph (CFG) for exported activities
         Map<String, ExceptionalUnitGraph> graphs = getCFGs(exportedActivities, packageName);
 
@@ -125,24 +165,40 @@ public class IntentAnalysis {
         System.out.println("Found " + numTotalActivities + " activities in the APK, " + numExportedActivities + " are exported . Analyzing...");
         long totalStartTime = System.currentTimeMillis();
         int activityExtraCount = 0;
+        int skippedMethodCount = 0;
         String PATH = "paths/" + apkName + "/";
+        IntentSchema intentSchema = options.isSchemaOnly() ? new IntentSchema() : null;
+        if (intentSchema != null) {
+            for (ManifestParsing.Activity exportedActivity : exportedActivities) {
+                intentSchema.addActivity(exportedActivity.getName(), null);
+                for (String action : exportedActivity.getActions())
+                    intentSchema.addActivity(exportedActivity.getName(), action);
+            }
+        }
+        Map<String, ManifestParsing.Activity> activitiesByName = new HashMap<>();
+        for (ManifestParsing.Activity exportedActivity : exportedActivities)
+            activitiesByName.put(exportedActivity.getName(), exportedActivity);
         for (Map.Entry<String, ExceptionalUnitGraph> entry : graphs.entrySet()) {
 
             String methodName = entry.getKey().substring(0, entry.getKey().lastIndexOf("-"));
             String attributes = entry.getKey().substring(entry.getKey().lastIndexOf("-") + 1);
 
             String activityName = methodName.substring(0, methodName.lastIndexOf("."));
-            String action = null;
-            for (ManifestParsing.Activity exportedActivity : exportedActivities) {
-                if (exportedActivity.getName().equals(activityName)) {
-                    action = exportedActivity.getAction();
-                    break;
-                }
+            ManifestParsing.Activity activity = activitiesByName.get(activityName);
+            if (activity == null) continue;
+
+            // Skip the methods that cannot read the Intent without building their graph
+            if (!FilteredControlFlowGraph.mayHaveExtras(entry.getValue(), graphs)) {
+                skippedMethodCount++;
+                continue;
             }
-            if (action == null) continue;
 
             FilteredControlFlowGraph filteredControlFlowGraph = new FilteredControlFlowGraph(entry.getValue(), methodName, attributes, graphs, globalVariables);
-            if (filteredControlFlowGraph.haveExtras()) {
+            if (filteredControlFlowGraph.haveExtras() && intentSchema != null) {
+                // Schema only: the paths are not enumerated.
+                activityExtraCount++;
+                intentSchema.addMethod(activityName, methodName, filteredControlFlowGraph.getFilteredCFG().values());
+            } else if (filteredControlFlowGraph.haveExtras()) {
                 activityExtraCount++;
                 System.out.println(" - The method " + methodName + " has extras. Saving as dot file. ");
 
@@ -160,8 +216,8 @@ public class IntentAnalysis {
                 System.out.print("    Saving paths as dot files. ");
                 try {
                     String fileName = PATH + filteredControlFlowGraph.getCompleteMethod() + "_paths.dot";
-                    CFGPathFinder pathFinder = new CFGPathFinder(filteredControlFlowGraph);
-                    pathFinder.generateDotFile(fileName, apkName, SDK_Version, packageName, activityName, action);
+                    CFGPathFinder pathFinder = new CFGPathFinder(filteredControlFlowGraph, options);
+                    pathFinder.generateDotFile(fileName, apkName, SDK_Version, packageName, activity);
                     long executionTime = System.currentTimeMillis() - startTime;
                     System.out.println(" Done in " + executionTime + " ms.");
                 } catch (OutOfMemoryError e) {
@@ -169,10 +225,21 @@ public class IntentAnalysis {
                 }
             }
         }
+        if (intentSchema != null) {
+            try (FileWriter writer = new FileWriter(PATH + "intentSchema.json")) {
+                intentSchema.write(writer, apkName, SDK_Version, packageName);
+            } catch (IOException e) {
+                System.err.println("Error writing the Intent schema: " + e.getMessage());
+            }
+        }
         long totalExecutionTime = System.currentTimeMillis() - totalStartTime;
-        System.out.println("\nDone analyzing of " + numExportedActivities + " exported activities. " + activityExtraCount + " methods utilise extras from the intents.");
+        System.out.println("\nDone analyzing of " + numExportedActivities + " exported activities. " + activityExtraCount + " methods utilise extras from the intents"
+                + (skippedMethodCount > 0 ? ", " + skippedMethodCount + " methods skipped without reading the intents." : "."));
         System.out.println("Completed in " + totalExecutionTime + " ms.");
-        System.out.println("All .dot files can be found in directory " + PATH);
+        if (intentSchema != null)
+            System.out.println("The Intent schema can be found in " + PATH + "intentSchema.json");
+        else
+            System.out.println("All .dot files can be found in directory " + PATH);
 
         try {
             FileUtils.deleteDirectory(new File("sootOutput"));
@@ -248,23 +315,32 @@ public class IntentAnalysis {
      * Retrieves the global variables (static final, static non-final fields) in the specified package from the APK.
      * The method filters classes by the given package name and then checks for static final, static non-final fields
      * in those classes. For each global variable, the value is resolved (if possible) and added to a map.
+     * <p>
+     * The class initializer of each class is read once, into a table of the constants it assigns
+     * ({@link #getInitializerConstants(SootClass)}), instead of once per field.
      *
      * @param packageName The name of the package to filter classes by.
-     * @return A map where the key is the name of the global variable and the value is its resolved value as a string.
+     * @return A map where the key is the signature of the global variable ({@code <class: type name>}) and the value
+     * is its resolved value as a string.
      */
     private static Map<String, GlobalVariablesInfo> getGlobalVariables(String packageName) {
         Map<String, GlobalVariablesInfo> globalVariables = new HashMap<>();
 
         for (SootClass sc : Scene.v().getClasses()) {
             if (sc.getName().startsWith(packageName)) { // Filter by package name
+                Map<SootField, String> initializerConstants = null;
                 for (SootField field : sc.getFields()) {
                     if (field.isStatic() || !field.isFinal()) { // Example heuristic for global variables
-                        String fieldName = field.getName();
-                        String fieldValue = resolveFieldValue(field); // Placeholder for the value
+                        String fieldValue = getConstantValue(field);
+                        if (fieldValue == null) {
+                            if (initializerConstants == null)
+                                initializerConstants = getInitializerConstants(sc);
+                            fieldValue = initializerConstants.getOrDefault(field, field.getSignature());
+                        }
                         String fieldType = field.getType().toString();
 
                         GlobalVariablesInfo info = new IntentAnalysis.GlobalVariablesInfo(fieldType, fieldValue);
-                        globalVariables.put(fieldName, info);
+                        globalVariables.put(field.getSignature(), info);
                     }
                 }
             }
@@ -274,63 +350,72 @@ public class IntentAnalysis {
     }
 
     /**
-     * Resolves the value of a given field, if possible. This method first checks if the field has
-     * a constant value (for static final variables) using a `ConstantValueTag`.
-     * If no constant is found, it attempts to analyze the `<clinit>` (class initializer) method of
-     * the field's declaring class to find where the field is assigned a value (e.g. for static variables).
-     * The resolved value can be a constant or the string representation of the assigned value.
+     * Returns the constant value of a field, for static final variables, using a `ConstantValueTag`.
      *
      * @param field The field whose value is to be resolved.
-     * @return A string representing the resolved value of the field. If the value can't be determined,
-     * returns the field's signature.
+     * @return The constant value of the field, or null if it has none.
      */
-    private static String resolveFieldValue(SootField field) {
-        // Check if the field has a constant value
+    private static String getConstantValue(SootField field) {
         for (Tag tag : field.getTags()) {
             if (tag instanceof ConstantValueTag) {
                 ConstantValueTag constantTag = (ConstantValueTag) tag;
                 return constantTag.getConstant().toString();
             }
         }
+        return null;
+    }
 
-        // If no ConstantValueTag, attempt to analyze the `<clinit>` method
-        SootClass declaringClass = field.getDeclaringClass();
-        if (declaringClass.declaresMethodByName("<clinit>")) {
-            SootMethod clinit = declaringClass.getMethodByName("<clinit>");
-            Body body = clinit.retrieveActiveBody();
-
-            // Look for statements assigning a value to this field
-            for (Unit unit : body.getUnits()) {
-                if (unit instanceof AssignStmt) {
-                    AssignStmt assignStmt = (AssignStmt) unit;
-                    // Check if this statement assigns a value to the field
-                    if (assignStmt.getLeftOp() instanceof StaticFieldRef) {
-                        StaticFieldRef fieldRef = (StaticFieldRef) assignStmt.getLeftOp();
-                        if (fieldRef.getField().equals(field)) {
-                            // Retrieve the right-hand side value
-                            Value rhs = assignStmt.getRightOp();
-                            // If the value is a constant, return it
-                            if (rhs instanceof IntConstant) {
-                                return String.valueOf(((IntConstant) rhs).value);
-                            } else if (rhs instanceof StringConstant) {
-                                return ((StringConstant) rhs).value;
-                            } else if (rhs instanceof FloatConstant) {
-                                return String.valueOf(((FloatConstant) rhs).value);
-                            } else if (rhs instanceof DoubleConstant) {
-                                return String.valueOf(((DoubleConstant) rhs).value);
-                            } else if (rhs instanceof LongConstant) {
-                                return String.valueOf(((LongConstant) rhs).value);
-                            } else {
-                                // For complex RHS, return its string representation
-                                return rhs.toString();
-                            }
-                        }
-                    }
-                }
+    /**
+     * Analyzes the `<clinit>` (class initializer) method of a class to find where its static fields are assigned a
+     * value (e.g. for static variables), in a single pass over its body. The resolved value of a field is the one of
+     * its first assignment: a constant or the string representation of the assigned value.
+     *
+     * @param declaringClass The class whose initializer is read.
+     * @return The resolved value of each field assigned by the initializer, empty if the class has no initializer or
+     * its body cannot be retrieved.
+     */
+    private static Map<SootField, String> getInitializerConstants(SootClass declaringClass) {
+        Map<SootField, String> constants = new HashMap<>();
+        if (!declaringClass.declaresMethodByName("<clinit>"))
+            return constants;
+
+        Body body;
+        try {
+            body = declaringClass.getMethodByName("<clinit>").retrieveActiveBody();
+        } catch (RuntimeException e) {
+            System.err.println("Cannot read the class initializer of " + declaringClass.getName() + ": " + e.getMessage());
+            return constants;
+        }
+
+        // Look for statements assigning a value to a field of the class
+        for (Unit unit : body.getUnits()) {
+            if (unit instanceof AssignStmt && ((AssignStmt) unit).getLeftOp() instanceof StaticFieldRef) {
+                AssignStmt assignStmt = (AssignStmt) unit;
+                SootField field = ((StaticFieldRef) assignStmt.getLeftOp()).getField();
+                if (field.getDeclaringClass().equals(declaringClass))
+                    constants.putIfAbsent(field, valueOf(assignStmt.getRightOp()));
             }
         }
+        return constants;
+    }
 
-        // Fallback: return the field's signature
-        return field.getSignature();
+    /**
+     * @param rhs The right-hand side of an assignment.
+     * @return The value of a constant, or the string representation of a complex right-hand side.
+     */
+    private static String valueOf(Value rhs) {
+        if (rhs instanceof IntConstant) {
+            return String.valueOf(((IntConstant) rhs).value);
+        } else if (rhs instanceof StringConstant) {
+            return ((StringConstant) rhs).value;
+        } else if (rhs instanceof FloatConstant) {
+            return String.valueOf(((FloatConstant) rhs).value);
+        } else if (rhs instanceof DoubleConstant) {
+            return String.valueOf(((DoubleConstant) rhs).value);
+        } else if (rhs instanceof LongConstant) {
+            return String.valueOf(((LongConstant) rhs).value);
+        } else {
+            return rhs.toString();
+        }
     }
 }
\ No newline at end of file
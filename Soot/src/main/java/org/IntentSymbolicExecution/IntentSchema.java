@@ -0,0 +1,204 @@
+package org.IntentSymbolicExecution;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.regex.Matcher;
+
+import static org.IntentSymbolicExecution.RegexUtils.*;
+
+/**
+ * The Intent schema of the exported activities of an APK: the extras each activity reads, with their types and the
+ * constants they are compared with, and the action strings the activity compares {@code getAction()} with.
+ * <p>
+ * The schema is read from the nodes of the filtered graphs ({@link FilteredControlFlowGraph#getFilteredCFG()}) in a
+ * single pass per method, without enumerating paths: the extra reads and the {@code getAction} calls give the variables
+ * holding Intent values, copies propagate them, and the branch conditions and relabelled {@code String.equals} on these
+ * variables give the compared constants. The analysis is flow-insensitive, so a variable reused for two extras makes
+ * each one compared with the constants of both.
+ * <p>
+ * The schema of an APK is written as a single compact JSON object:
+ * <pre>
+ * {"apkFile":"app.apk","sdkVersion":34,"package":"...","activities":[
+ * {"activity":"...","actions":["android.intent.action.MAIN"],"methods":["...onCreate"],
+ *  "extras":[{"name":"Op","type":"String","comparedWith":["*","+"]}],"comparedActions":["android.intent.action.SEND"]},
+ * ...]}
+ * </pre>
+ */
+public class IntentSchema {
+
+    /**
+     * Name of the pseudo-extra holding the action.
+     */
+    private static final String ACTION = "action";
+
+    private final Map<String, ActivitySchema> activities = new LinkedHashMap<>();
+
+    /**
+     * Adds an exported activity, so that it is listed even if none of its methods reads the Intent.
+     *
+     * @param activity The name of the activity.
+     * @param action   An action of its intent filter, or null.
+     */
+    public void addActivity(String activity, String action) {
+        ActivitySchema schema = activities.computeIfAbsent(activity, ActivitySchema::new);
+        if (action != null)
+            schema.actions.add(action);
+    }
+
+    /**
+     * Adds the Intent-related nodes of a method of an activity.
+     *
+     * @param activity  The name of the activity.
+     * @param method    The name of the class and method.
+     * @param codeLines The code lines of the nodes of the filtered graph of the method.
+     */
+    public void addMethod(String activity, String method, Collection<String> codeLines) {
+        ActivitySchema schema = activities.computeIfAbsent(activity, ActivitySchema::new);
+        schema.methods.add(method);
+
+        // Extras held by each variable, and the variables each variable is copied to.
+        Map<String, Set<ExtraSchema>> held = new HashMap<>();
+        Map<String, List<String>> copies = new HashMap<>();
+        Deque<String> worklist = new ArrayDeque<>();
+        for (String codeLine : codeLines) {
+            String assigned = VariableVersioning.definedVariable(codeLine);
+            if (assigned == null) continue;
+
+            Matcher extra = patternExtra.matcher(codeLine);
+            Matcher action = patterGetAction.matcher(codeLine);
+            ExtraSchema read = null;
+            if (extra.find()) {
+                String type = extra.group("extraType").isEmpty() ? extra.group("assignationType") : extra.group("extraType");
+                read = schema.extras.computeIfAbsent(extra.group("extraName") + " " + type,
+                        key -> new ExtraSchema(extra.group("extraName"), type));
+            } else if (action.find()) {
+                read = schema.action;
+            }
+            if (read != null) {
+                if (held.computeIfAbsent(assigned, variable -> new HashSet<>()).add(read))
+                    worklist.add(assigned);
+                continue;
+            }
+
+            String expression = codeLine.substring(codeLine.indexOf('=') + 1).trim();
+            if (localTokenPattern.matcher(expression).matches() && !isLiteral(expression))
+                copies.computeIfAbsent(expression.replace("$", ""), variable -> new ArrayList<>()).add(assigned);
+        }
+
+        while (!worklist.isEmpty()) {
+            String variable = worklist.poll();
+            for (String copy : copies.getOrDefault(variable, Collections.emptyList()))
+                if (held.computeIfAbsent(copy, v -> new HashSet<>()).addAll(held.get(variable)))
+                    worklist.add(copy);
+        }
+
+        for (String codeLine : codeLines) {
+            String left;
+            String right;
+            Matcher condition = conditionPattern.matcher(codeLine);
+            Matcher comparison = stringComparisonPattern.matcher(codeLine.substring(codeLine.indexOf('=') + 1).trim());
+            if (codeLine.startsWith("if") && condition.find()) {
+                left = condition.group("left").trim();
+                right = condition.group("right").trim();
+            } else if (VariableVersioning.definedVariable(codeLine) != null && comparison.find()) {
+                left = comparison.group("left").trim();
+                right = comparison.group("right").trim();
+            } else {
+                continue;
+            }
+            compare(held, left, right);
+            compare(held, right, left);
+        }
+    }
+
+    /**
+     * Records a comparison of the extras held by a variable with a literal.
+     */
+    private static void compare(Map<String, Set<ExtraSchema>> held, String variable, String literal) {
+        Set<ExtraSchema> extras = held.get(variable.replace("$", ""));
+        if (extras == null || !isLiteral(literal)) return;
+        for (ExtraSchema extra : extras)
+            extra.comparedWith.add(literal);
+    }
+
+    private static boolean isLiteral(String operand) {
+        return operand.equals("null") || PathConstraints.isNumber(operand) || PathConstraints.isString(operand);
+    }
+
+    /**
+     * Writes the schema.
+     *
+     * @param writer      The output.
+     * @param apkFileName The name of the APK file.
+     * @param sdkVersion  The SDK version of the APK.
+     * @param packageName The package of the APK.
+     */
+    public void write(Writer writer, String apkFileName, int sdkVersion, String packageName) throws IOException {
+        writer.write(String.format("{\"apkFile\":%s,\"sdkVersion\":%d,\"package\":%s,\"activities\":[",
+                FastPathSolver.json(apkFileName), sdkVersion, FastPathSolver.json(packageName)));
+        boolean first = true;
+        for (ActivitySchema schema : activities.values()) {
+            writer.write(first ? "\n" : ",\n");
+            first = false;
+            StringJoiner extras = new StringJoiner(",");
+            for (ExtraSchema extra : schema.extras.values())
+                extras.add(String.format("{\"name\":%s,\"type\":%s,\"comparedWith\":%s}", FastPathSolver.json(extra.name),
+                        FastPathSolver.json(extra.type), literals(extra.comparedWith)));
+            writer.write(String.format("{\"activity\":%s,\"actions\":%s,\"methods\":%s,\"extras\":[%s],\"comparedActions\":%s}",
+                    FastPathSolver.json(schema.name), strings(schema.actions), strings(schema.methods), extras,
+                    literals(schema.action.comparedWith)));
+        }
+        writer.write("]}\n");
+    }
+
+    private static String strings(Collection<String> values) {
+        StringJoiner array = new StringJoiner(",", "[", "]");
+        for (String value : values)
+            array.add(FastPathSolver.json(value));
+        return array.toString();
+    }
+
+    /**
+     * @return The literals as a JSON array: strings unquoted, numbers and null as they are.
+     */
+    private static String literals(Collection<String> values) {
+        StringJoiner array = new StringJoiner(",", "[", "]");
+        for (String value : values) {
+            if (PathConstraints.isString(value))
+                array.add(FastPathSolver.json(PathConstraints.unquote(value)));
+            else
+                array.add(value.endsWith("L") ? value.substring(0, value.length() - 1) : value);
+        }
+        return array.toString();
+    }
+
+    /**
+     * The Intent schema of an activity.
+     */
+    private static class ActivitySchema {
+        private final String name;
+        private final Set<String> actions = new LinkedHashSet<>();
+        private final Set<String> methods = new LinkedHashSet<>();
+        private final Map<String, ExtraSchema> extras = new TreeMap<>();
+        private final ExtraSchema action = new ExtraSchema(ACTION, "String");
+
+        ActivitySchema(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * An extra and the constants it is compared with.
+     */
+    private static class ExtraSchema {
+        private final String name;
+        private final String type;
+        private final Set<String> comparedWith = new TreeSet<>();
+
+        ExtraSchema(String name, String type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package org.IntentSymbolicExecution;
+
+import java.util.*;
+
+/**
+ * Unrolls each natural loop of a {@link PathGraph} k times, so that the result has no loops.
+ * <p>
+ * A natural loop is found from its back edges, the edges {@code tail -> header} where the header dominates the tail;
+ * its body is the header and the nodes reaching a tail without going through the header. The dominators and the loops
+ * are computed once on the original graph, and the loops are unrolled from the innermost: the body is copied k times,
+ * the back edges of copy {@code i} go to the header of copy {@code i + 1} and the back edges of the last copy are
+ * dropped, so a path takes the back edges of a loop at most k times per entry, running its body at most k + 1 times,
+ * and paths that need more iterations are not enumerated. Exit edges of every copy go to the original exit node. The
+ * copies of an inner loop join the body of every loop containing it, so they are copied in turn with the outer loop.
+ * <p>
+ * With k = 0 the back edges are only removed, which is the loop-free skeleton: a loop body is entered at most once,
+ * as with the simple paths of the original graph. In general every node is copied at most {@code (k + 1)^d} times,
+ * where d is the number of loops containing it, so the graph has at most {@code |V| * (k + 1)^d} nodes for a loop
+ * nesting depth d, and each loop multiplies the number of paths through it by at most k + 1 plus the paths of its
+ * additional iterations. Cycles that are not natural loops (irreducible flow) are kept and cut by the enumeration.
+ */
+public class LoopUnroller {
+
+    private final PathGraph graph;
+    private final int iterations;
+
+    /**
+     * The graph being unrolled: the successors of each node and the id of the node of {@link #graph} it copies.
+     */
+    private final List<int[]> successors = new ArrayList<>();
+    private int[] originals;
+
+    /**
+     * Unrolls the loops of the given graph.
+     *
+     * @param graph      The graph.
+     * @param iterations The maximum number of times a path takes the back edges of each loop (k), at least 0.
+     * @return An equivalent graph without natural loops, whose nodes are copies of the nodes of the graph.
+     */
+    public static PathGraph unroll(PathGraph graph, int iterations) {
+        return new LoopUnroller(graph, iterations).unroll();
+    }
+
+    private LoopUnroller(PathGraph graph, int iterations) {
+        this.graph = graph;
+        this.iterations = iterations;
+
+        originals = new int[graph.size()];
+        for (int node = 0; node < graph.size(); node++) {
+            successors.add(graph.successors(node));
+            originals[node] = node;
+        }
+    }
+
+    private PathGraph unroll() {
+        List<Loop> loops = naturalLoops();
+        if (loops.isEmpty()) return graph;
+
+        // A loop nested in another has a strictly smaller body, so the inner loops come first.
+        loops.sort(Comparator.comparingInt(loop -> loop.body.cardinality()));
+        for (int i = 0; i < loops.size(); i++) {
+            Loop loop = loops.get(i);
+            trimBody(loop.header, loop.body);
+            int firstCopy = successors.size();
+            unrollLoop(loop.header, loop.body);
+            for (Loop outer : loops.subList(i + 1, loops.size()))
+                if (outer.body.get(loop.header))
+                    outer.body.set(firstCopy, successors.size());
+        }
+        return graph.withCopies(Arrays.copyOf(originals, successors.size()), successors.toArray(new int[0][]));
+    }
+
+    /**
+     * A natural loop of the graph: its header and its body, header included.
+     */
+    private static class Loop {
+        private final int header;
+        private final BitSet body;
+
+        Loop(int header, BitSet body) {
+            this.header = header;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Finds the natural loops of the original graph, one per header.
+     */
+    private List<Loop> naturalLoops() {
+        int size = graph.size();
+        int entry = size; // Virtual entry, joining every root.
+
+        int[][] forward = new int[size + 1][];
+        for (int node = 0; node < size; node++)
+            forward[node] = graph.successors(node);
+        forward[entry] = graph.roots();
+        int[][] backward = predecessors(forward);
+
+        int[] idom = Dominators.immediateDominators(forward, backward, entry);
+
+        // Back edges, grouped by header.
+        Map<Integer, List<Integer>> tails = new TreeMap<>();
+        for (int node = 0; node < size; node++)
+            for (int succ : forward[node])
+                if (Dominators.dominates(idom, succ, node))
+                    tails.computeIfAbsent(succ, h -> new ArrayList<>()).add(node);
+
+        List<Loop> loops = new ArrayList<>();
+        for (Map.Entry<Integer, List<Integer>> loop : tails.entrySet()) {
+            BitSet body = new BitSet();
+            naturalLoop(loop.getKey(), loop.getValue(), backward, body);
+            loops.add(new Loop(loop.getKey(), body));
+        }
+        return loops;
+    }
+
+    /**
+     * Collects the body of a natural loop: the header and the nodes reaching a tail without going through the header.
+     */
+    private static void naturalLoop(int header, List<Integer> tails, int[][] backward, BitSet body) {
+        body.clear();
+        body.set(header);
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (int tail : tails)
+            if (!body.get(tail)) {
+                body.set(tail);
+                stack.push(tail);
+            }
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            for (int pred : backward[node])
+                if (!body.get(pred)) {
+                    body.set(pred);
+                    stack.push(pred);
+                }
+        }
+    }
+
+    /**
+     * Restricts a body grown with the copies of its inner loops to the nodes reaching a back edge without going through
+     * the header, as if the loop were found again on the unrolled graph: the last copy of an inner loop has no back
+     * edges, so some of its nodes may only lead out of the loop. Only the body is searched, not the whole graph.
+     */
+    private void trimBody(int header, BitSet body) {
+        int[] bodyNodes = body.stream().toArray();
+        int[][] bodyPredecessors = new int[bodyNodes.length][];
+        int[] count = new int[bodyNodes.length];
+        for (int pass = 0; pass < 2; pass++) {
+            for (int node : bodyNodes)
+                for (int succ : successors.get(node)) {
+                    int position = Arrays.binarySearch(bodyNodes, succ);
+                    if (position < 0) continue;
+                    if (pass == 0)
+                        count[position]++;
+                    else
+                        bodyPredecessors[position][--count[position]] = node;
+                }
+            if (pass == 0)
+                for (int i = 0; i < bodyNodes.length; i++)
+                    bodyPredecessors[i] = new int[count[i]];
+        }
+
+        BitSet kept = new BitSet();
+        kept.set(header);
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(header);
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            for (int pred : bodyPredecessors[Arrays.binarySearch(bodyNodes, node)])
+                if (!kept.get(pred)) {
+                    kept.set(pred);
+                    stack.push(pred);
+                }
+        }
+        body.and(kept);
+    }
+
+    /**
+     * Replaces a loop by {@link #iterations} + 1 copies of its body chained through the back edges.
+     */
+    private void unrollLoop(int header, BitSet body) {
+        int[] bodyNodes = body.stream().toArray();
+        int size = successors.size();
+        int bodySize = bodyNodes.length;
+
+        int[] positionInBody = new int[size];
+        Arrays.fill(positionInBody, -1);
+        for (int i = 0; i < bodySize; i++)
+            positionInBody[bodyNodes[i]] = i;
+
+        // Copy 0 is the loop itself, copy i > 0 takes the ids from size + (i - 1) * bodySize.
+        originals = Arrays.copyOf(originals, size + iterations * bodySize);
+        int[][] copySuccessors = new int[(iterations + 1) * bodySize][];
+        for (int copy = 0; copy <= iterations; copy++) {
+            for (int i = 0; i < bodySize; i++) {
+                int node = bodyNodes[i];
+                if (copy > 0)
+                    originals[copyId(node, copy, i, size, bodySize)] = originals[node];
+
+                int[] nodeSuccessors = successors.get(node);
+                int[] mapped = new int[nodeSuccessors.length];
+                int count = 0;
+                for (int succ : nodeSuccessors) {
+                    if (succ == header) {
+                        // Back edge: on to the next iteration, dropped after the last one.
+                        if (copy < iterations)
+                            mapped[count++] = copyId(header, copy + 1, positionInBody[header], size, bodySize);
+                    } else if (positionInBody[succ] >= 0) {
+                        mapped[count++] = copyId(succ, copy, positionInBody[succ], size, bodySize);
+                    } else {
+                        mapped[count++] = succ; // Exit edge.
+                    }
+                }
+                copySuccessors[copy * bodySize + i] = Arrays.copyOf(mapped, count);
+            }
+        }
+
+        for (int i = 0; i < bodySize; i++)
+            successors.set(bodyNodes[i], copySuccessors[i]);
+        for (int copy = 1; copy <= iterations; copy++)
+            for (int i = 0; i < bodySize; i++)
+                successors.add(copySuccessors[copy * bodySize + i]);
+    }
+
+    private static int copyId(int node, int copy, int position, int size, int bodySize) {
+        return copy == 0 ? node : size + (copy - 1) * bodySize + position;
+    }
+
+    private static int[][] predecessors(int[][] successors) {
+        int[] count = new int[successors.length];
+        for (int[] nodeSuccessors : successors)
+            for (int succ : nodeSuccessors)
+                count[succ]++;
+        int[][] predecessors = new int[successors.length][];
+        for (int node = 0; node < successors.length; node++)
+            predecessors[node] = new int[count[node]];
+        for (int node = 0; node < successors.length; node++)
+            for (int succ : successors[node])
+                predecessors[succ][--count[succ]] = node;
+        return predecessors;
+    }
+}
@@ -36,7 +36,8 @@ public class Main {
      * - Printing the list of APKs available for analysis.
      * - Waiting for user input to select an APK, reload the list, or exit.
      *
-     * @param args Command-line arguments, where the first argument can be the path to an APK for immediate analysis.
+     * @param args Command-line arguments, where the first argument can be the path to an APK for immediate analysis,
+     *             followed by the {@link AnalysisOptions} as {@code --name=value}.
      */
     public static void main(String[] args) {
         // If an APK path is provided via command-line arguments, analyze it directly
@@ -50,16 +51,21 @@ public class Main {
             printAppsList();
             userInput();
         }
-        if (args.length == 1) {
+        else {
+            AnalysisOptions options;
+            try {
+                options = AnalysisOptions.parse(Arrays.copyOfRange(args, 1, args.length));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Error: " + e.getMessage());
+                return;
+            }
+
             File apkFile = new File(args[0]);
             if (apkFile.exists() && apkFile.isFile())
-                new IntentAnalysis(args[0], null); // apk path from args
+                new IntentAnalysis(args[0], null, options); // apk path from args
             else
                 System.err.println("Error: The specified APK file does not exist: " + args[0]);
         }
-        else {
-            System.err.println("Invalid number of arguments: " + args.length);
-        }
     }
 
     /**
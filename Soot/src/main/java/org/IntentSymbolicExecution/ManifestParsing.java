@@ -12,7 +12,9 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -37,7 +39,8 @@ public class ManifestParsing {
     private static String PackageName;
 
     /**
-     * A map of all activities, activity name, action, adn exported; defined in the AndroidManifest.xml.
+     * A list of all activities, with the actions, categories and data of their intent filters and whether they are
+     * exported; defined in the AndroidManifest.xml.
      */
     private static List<Activity> Activities;
 
@@ -255,19 +258,17 @@ public class ManifestParsing {
                         isExported = Boolean.parseBoolean(exported);
                 }
 
-                // Get the intent-filters and extract actions
-                List<String> actions = getIntentActions(activityElement);
+                // Get the intent-filters and extract actions, categories and data
+                List<String> actions = getIntentFilterAttributes(activityElement, "action");
+                List<String> categories = getIntentFilterAttributes(activityElement, "category");
+                List<String> dataSpecs = getIntentDataSpecs(activityElement);
 
 //                // If onlyExportedActivities is true, filter out non-exported activities
 //                if (onlyExportedActivities && !"true".equals(exported))
 //                    continue;
 
-                if (actions.isEmpty())
-                    activities.add(new Activity(activityName, "", isExported));
-
-                // Store each activity with its actions
-                for (String action : actions)
-                    activities.add(new Activity(activityName, action, isExported));
+                // Store each activity once, with all its actions
+                activities.add(new Activity(activityName, actions, categories, dataSpecs, isExported));
             }
         }
 
@@ -275,13 +276,14 @@ public class ManifestParsing {
     }
 
     /**
-     * Extracts intent-filter actions from an activity element.
+     * Extracts the names of the elements of a kind in the intent-filters of an activity element.
      *
      * @param activityElement the activity element.
-     * @return a list of action names.
+     * @param tagName         the kind of element: action or category.
+     * @return a list of names, without repetition.
      */
-    private static List<String> getIntentActions(Element activityElement) {
-        List<String> actions = new ArrayList<>();
+    private static List<String> getIntentFilterAttributes(Element activityElement, String tagName) {
+        Set<String> names = new LinkedHashSet<>();
 
         // Get all <intent-filter> elements inside the activity
         NodeList intentFilters = activityElement.getElementsByTagName("intent-filter");
@@ -291,27 +293,55 @@ public class ManifestParsing {
             if (intentFilterNode.getNodeType() == Node.ELEMENT_NODE) {
                 Element intentFilterElement = (Element) intentFilterNode;
 
-                // Get all <action> elements inside the intent-filter
-                NodeList actionNodes = intentFilterElement.getElementsByTagName("action");
-                for (int j = 0; j < actionNodes.getLength(); j++) {
-                    Element actionElement = (Element) actionNodes.item(j);
-                    String actionName = actionElement.getAttribute("android:name");
-                    actions.add(actionName);
-                }
+                // Get all <action> or <category> elements inside the intent-filter
+                NodeList nodes = intentFilterElement.getElementsByTagName(tagName);
+                for (int j = 0; j < nodes.getLength(); j++)
+                    names.add(((Element) nodes.item(j)).getAttribute("android:name"));
             }
         }
 
-        return actions;
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Extracts the data specifications of the intent-filters of an activity element.
+     *
+     * @param activityElement the activity element.
+     * @return a list of data specifications, one per data element, as their attributes without the android prefix
+     * (e.g. "scheme=http host=example.com").
+     */
+    private static List<String> getIntentDataSpecs(Element activityElement) {
+        Set<String> dataSpecs = new LinkedHashSet<>();
+
+        NodeList dataNodes = activityElement.getElementsByTagName("data");
+        for (int i = 0; i < dataNodes.getLength(); i++) {
+            Element dataElement = (Element) dataNodes.item(i);
+            if (!dataElement.getParentNode().getNodeName().equals("intent-filter")) continue;
+
+            List<String> attributes = new ArrayList<>();
+            for (int j = 0; j < dataElement.getAttributes().getLength(); j++) {
+                Node attribute = dataElement.getAttributes().item(j);
+                attributes.add(attribute.getNodeName().replaceFirst("^android:", "") + "=" + attribute.getNodeValue());
+            }
+            if (!attributes.isEmpty())
+                dataSpecs.add(String.join(" ", attributes));
+        }
+
+        return new ArrayList<>(dataSpecs);
     }
 
     public static class Activity {
         private final String name;
-        private final String action;
+        private final List<String> actions;
+        private final List<String> categories;
+        private final List<String> dataSpecs;
         private final Boolean exported;
 
-        public Activity(String name, String action, Boolean exported) {
+        public Activity(String name, List<String> actions, List<String> categories, List<String> dataSpecs, Boolean exported) {
             this.name = name;
-            this.action = action;
+            this.actions = actions;
+            this.categories = categories;
+            this.dataSpecs = dataSpecs;
             this.exported = exported;
         }
 
@@ -319,8 +349,23 @@ public class ManifestParsing {
             return name;
         }
 
+        /**
+         * @return the first action of the intent filters, or an empty string if there is none.
+         */
         public String getAction() {
-            return action;
+            return actions.isEmpty() ? "" : actions.get(0);
+        }
+
+        public List<String> getActions() {
+            return actions;
+        }
+
+        public List<String> getCategories() {
+            return categories;
+        }
+
+        public List<String> getDataSpecs() {
+            return dataSpecs;
         }
 
         public Boolean isExported() {
@@ -331,7 +376,9 @@ public class ManifestParsing {
         public String toString() {
             return "Activity{" +
                     "name='" + name + '\'' +
-                    ", action='" + action + '\'' +
+                    ", actions=" + actions +
+                    ", categories=" + categories +
+                    ", dataSpecs=" + dataSpecs +
                     ", exported=" + exported +
                     '}';
         }
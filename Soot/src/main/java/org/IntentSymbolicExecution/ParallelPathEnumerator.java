@@ -0,0 +1,182 @@
+package org.IntentSymbolicExecution;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Enumerates the paths of a {@link PathGraph} in parallel with fork/join.
+ * <p>
+ * Each task runs a {@link PathEnumerator} from the end of its own prefix. When it reaches a branch while the pool is
+ * short of queued work, it forks one subtask per successor, each carrying a copy of the prefix, and lets idle workers
+ * steal them. Every task keeps its results in depth-first order and joins its subtasks in successor order, so the
+ * merged result is exactly the one of the sequential search, whatever the scheduling.
+ * <p>
+ * Paths are projected while they are enumerated and only the first path of every projection is kept, so the memory
+ * grows with the number of distinct projections rather than with the number of paths. These paths are all kept until
+ * the enumeration ends, though, which is why {@link CFGPathFinder} only runs it with the parallel option.
+ */
+public class ParallelPathEnumerator {
+
+    /**
+     * Number of queued tasks below which a worker keeps splitting at branches.
+     */
+    private static final int SURPLUS_THRESHOLD = 3;
+
+    private final PathGraph graph;
+    private final Supplier<PrefixCheck> prefixChecks;
+
+    /**
+     * @param graph The graph whose paths are enumerated.
+     */
+    public ParallelPathEnumerator(PathGraph graph) {
+        this(graph, null);
+    }
+
+    /**
+     * @param graph        The graph whose paths are enumerated.
+     * @param prefixChecks Creates the check cutting the prefixes of each task, such as {@link PathFeasibility} or
+     *                     {@link SinkFilter}, or null to enumerate all the paths. Tasks run concurrently, so each one
+     *                     gets its own check.
+     */
+    public ParallelPathEnumerator(PathGraph graph, Supplier<PrefixCheck> prefixChecks) {
+        this.graph = graph;
+        this.prefixChecks = prefixChecks;
+    }
+
+    /**
+     * Enumerates the paths from the roots of the graph.
+     *
+     * @param pool The pool running the tasks.
+     * @return The first path of each distinct non-empty projection, in depth-first order, and the number of enumerated paths.
+     */
+    public Result enumerate(ForkJoinPool pool) {
+        Result result = new Result(graph);
+        for (int root : graph.roots())
+            result.merge(pool.invoke(new EnumerationTask(new int[]{root})));
+        return result;
+    }
+
+    /**
+     * Paths kept by the enumeration.
+     */
+    public static class Result {
+        private final PathGraph graph;
+        private final List<int[]> paths = new ArrayList<>();
+
+        /**
+         * Projections of the kept paths, as key id sequences.
+         */
+        private final SequenceSet seen = new SequenceSet();
+        private int[] projection = new int[0];
+        private long enumerated = 0;
+        private long pruned = 0;
+
+        private Result(PathGraph graph) {
+            this.graph = graph;
+        }
+
+        /**
+         * @return The node ids of the kept paths, in depth-first order.
+         */
+        public List<int[]> getPaths() {
+            return paths;
+        }
+
+        /**
+         * @return The number of enumerated paths, including the ones that were dropped.
+         */
+        public long getEnumerated() {
+            return enumerated;
+        }
+
+        /**
+         * @return The number of edges cut by the prefix check.
+         */
+        public long getPruned() {
+            return pruned;
+        }
+
+        /**
+         * @return true if the projection of the path is not empty and new. It is then added to the kept ones.
+         */
+        private boolean isNewProjection(int[] path, int length) {
+            if (projection.length < length)
+                projection = new int[length];
+            int projectionLength = graph.highlightedKeyIds(path, length, projection);
+            return projectionLength > 0 && seen.add(projection, projectionLength);
+        }
+
+        private void merge(Result other) {
+            enumerated += other.enumerated;
+            pruned += other.pruned;
+            for (int[] path : other.paths)
+                if (isNewProjection(path, path.length))
+                    paths.add(path);
+        }
+    }
+
+    private class EnumerationTask extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] prefix;
+
+        EnumerationTask(int[] prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        protected Result compute() {
+            // Results in depth-first order: local results and forked subtasks, interleaved.
+            List<Object> segments = new ArrayList<>();
+            Result local = new Result(graph);
+
+            PathEnumerator enumerator = new PathEnumerator(graph, prefix, prefix.length);
+            enumerator.setSplitPredicate(node -> getSurplusQueuedTaskCount() < SURPLUS_THRESHOLD);
+            if (prefixChecks != null)
+                enumerator.setPrefixCheck(prefixChecks.get());
+
+            int state;
+            while ((state = enumerator.advance()) != PathEnumerator.END) {
+                int[] path = enumerator.path();
+                int length = enumerator.length();
+
+                if (state == PathEnumerator.PATH) {
+                    local.enumerated++;
+                    if (local.isNewProjection(path, length))
+                        local.paths.add(Arrays.copyOf(path, length));
+                    continue;
+                }
+
+                // Split: one subtask per successor, each with its own copy of the prefix.
+                segments.add(local);
+                local = new Result(graph);
+                int branch = path[length - 1];
+                for (int i = 0; i < graph.successorCount(branch); i++) {
+                    int succ = graph.successor(branch, i);
+                    if (enumerator.isOnPath(succ)) continue;
+                    int[] subPrefix = Arrays.copyOf(path, length + 1);
+                    subPrefix[length] = succ;
+                    EnumerationTask subtask = new EnumerationTask(subPrefix);
+                    subtask.fork();
+                    segments.add(subtask);
+                }
+                enumerator.skipBranch();
+            }
+            local.pruned += enumerator.pruned();
+            segments.add(local);
+
+            // Join in order, so the result does not depend on the scheduling. The first segment is local, so the
+            // others are merged into it rather than into a new result.
+            Result result = (Result) segments.get(0);
+            for (Object segment : segments.subList(1, segments.size())) {
+                if (segment instanceof Result)
+                    result.merge((Result) segment);
+                else
+                    result.merge(((EnumerationTask) segment).join());
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package org.IntentSymbolicExecution;
+
+import org.IntentSymbolicExecution.ControlFlowGraph.GraphNode;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.IntentSymbolicExecution.RegexUtils.*;
+
+/**
+ * The constraints of the nodes of a {@link PathGraph}, parsed once for all its paths.
+ * <p>
+ * The code line of each node is read as a {@link Statement}: an assignment, with its value when it is understood (a
+ * literal, a copy, an arithmetic operation or a relabelled {@code String.equals}) and the Intent extra it reads, or a
+ * branch condition. Every variable gets a sort, from the type in its assignments or, failing that, from the values it
+ * is assigned or compared with. Variables are versioned along a path like in the path files
+ * ({@link VariableVersioning}): the n-th assignment of {@code name} defines {@code name_n}.
+ * <p>
+ * The constraints are turned into solver terms by {@link SmtLibWriter} and by the Z3 {@link PathSolver}.
+ */
+public class PathConstraints {
+
+    private static final Pattern arithmeticPattern = Pattern.compile("^(?<left>\\S+) (?<operator>[+\\-*/%]) (?<right>\\S+)$");
+    private static final Pattern numberPattern = Pattern.compile("-?\\d{1,18}L?");
+
+    /**
+     * Sorts of the variables.
+     */
+    public enum Kind {INT, REAL, BOOL, STRING, OBJECT}
+
+    /**
+     * Name and sort of each variable, by index, and the number of nodes assigning it.
+     */
+    private final List<String> names = new ArrayList<>();
+    private final List<Kind> kinds = new ArrayList<>();
+    private final Map<String, Integer> variables = new HashMap<>();
+    private int[] assignments;
+
+    /**
+     * Statement of each node of the graph, by node id.
+     */
+    private final Statement[] statements;
+    private final int[] trueSuccessors;
+
+    /**
+     * Parses the code line of every node of a graph.
+     *
+     * @param graph The graph whose paths are constrained.
+     */
+    public PathConstraints(PathGraph graph) {
+        Map<GraphNode, Statement> parsed = new IdentityHashMap<>();
+        statements = new Statement[graph.size()];
+        for (int node = 0; node < graph.size(); node++)
+            statements[node] = parsed.computeIfAbsent(graph.node(node), n -> new Statement(n.getValue()));
+        inferKinds(parsed.values());
+
+        trueSuccessors = new int[graph.size()];
+        assignments = new int[names.size()];
+        for (int node = 0; node < graph.size(); node++) {
+            trueSuccessors[node] = graph.isRelevantBranch(node) && statements[node].operator != null
+                    ? graph.trueSuccessor(node) : -1;
+            if (statements[node].assigned >= 0)
+                assignments[statements[node].assigned]++;
+        }
+    }
+
+    /**
+     * @param node A node id.
+     * @return The statement of the node.
+     */
+    public Statement statement(int node) {
+        return statements[node];
+    }
+
+    /**
+     * @param node A node id.
+     * @return The successor taken when the condition of the node holds, or -1 if the node is not an Intent-related
+     * branch with a condition and a known outcome.
+     */
+    public int trueSuccessor(int node) {
+        return trueSuccessors[node];
+    }
+
+    /**
+     * @return The number of variables.
+     */
+    public int variableCount() {
+        return names.size();
+    }
+
+    /**
+     * @param variable A variable index.
+     * @return The name of the variable, without the {@code $} of stack locals.
+     */
+    public String name(int variable) {
+        return names.get(variable);
+    }
+
+    /**
+     * @param variable A variable index.
+     * @return The sort of the variable.
+     */
+    public Kind kind(int variable) {
+        return kinds.get(variable);
+    }
+
+    /**
+     * @param variable A variable index.
+     * @return The number of nodes assigning the variable, which bounds its version on any path.
+     */
+    public int assignmentCount(int variable) {
+        return assignments[variable];
+    }
+
+    /**
+     * @param variable A variable index.
+     * @param version  The number of assignments of the variable before, on the path.
+     * @return The name of the version: {@code name_n}, or {@code name} if it was not assigned.
+     */
+    public String versionName(int variable, int version) {
+        return version == 0 ? names.get(variable) : names.get(variable) + "_" + version;
+    }
+
+    /**
+     * @param operand A variable or a literal, as written in the code line.
+     * @return The index of the variable, or null if the operand is not a variable.
+     */
+    public Integer variable(String operand) {
+        return variables.get(operand.startsWith("$") ? operand.substring(1) : operand);
+    }
+
+    /**
+     * @param operand A variable or a literal.
+     * @return The sort of the variable, or null if the operand is not a variable.
+     */
+    public Kind kindOf(String operand) {
+        Integer variable = variable(operand);
+        return variable != null ? kinds.get(variable) : null;
+    }
+
+    /**
+     * @param operand An operand.
+     * @return true if it is an integer literal fitting in a long.
+     */
+    public static boolean isNumber(String operand) {
+        return numberPattern.matcher(operand).matches();
+    }
+
+    /**
+     * @param operand An operand.
+     * @return true if it is a string literal.
+     */
+    public static boolean isString(String operand) {
+        return stringLiteralPattern.matcher(operand).matches();
+    }
+
+    /**
+     * @param literal A string literal, with its quotes.
+     * @return Its content.
+     */
+    public static String unquote(String literal) {
+        return literal.substring(1, literal.length() - 1).replace("\\\"", "\"").replace("\\\\", "\\");
+    }
+
+    /**
+     * @return The type of an extra as written by the Z3 solver script.
+     */
+    public static String typeName(String type) {
+        if (type == null) return "unknown";
+        switch (kindOfType(type)) {
+            case INT:
+                return "integer";
+            case REAL:
+                return "float";
+            case BOOL:
+                return "boolean";
+            case STRING:
+                return "string";
+            default:
+                return type.equals("java.io.Serializable") ? "serializable" : type;
+        }
+    }
+
+    private int declare(String operand) {
+        String name = operand.startsWith("$") ? operand.substring(1) : operand;
+        return variables.computeIfAbsent(name, n -> {
+            names.add(n);
+            kinds.add(null);
+            return names.size() - 1;
+        });
+    }
+
+    private static boolean isVariable(String operand) {
+        return localTokenPattern.matcher(operand).matches() && !Character.isDigit(operand.charAt(0))
+                && !operand.equals("null");
+    }
+
+    /**
+     * Gives every variable a sort: the one of its typed assignments, then the one of the values it is assigned or
+     * compared with, until nothing changes. Variables left without one are integers.
+     */
+    private void inferKinds(Collection<Statement> parsedStatements) {
+        for (Statement statement : parsedStatements)
+            if (statement.assigned >= 0 && statement.type != null && kinds.get(statement.assigned) == null)
+                kinds.set(statement.assigned, kindOfType(statement.type));
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Statement statement : parsedStatements) {
+                if (statement.assigned >= 0 && kinds.get(statement.assigned) == null) {
+                    Kind kind = null;
+                    if (statement.comparedLeft != null)
+                        kind = Kind.BOOL;
+                    else if (statement.arithmetic != null)
+                        kind = Kind.INT;
+                    else if (statement.value != null)
+                        kind = literalKind(statement.value);
+                    if (kind != null) {
+                        kinds.set(statement.assigned, kind);
+                        changed = true;
+                    }
+                }
+                changed |= unify(statement.left, statement.right) | unify(statement.comparedLeft, statement.comparedRight);
+                if (statement.assigned >= 0 && statement.value != null && isVariable(statement.value))
+                    changed |= unify(names.get(statement.assigned), statement.value);
+            }
+        }
+        for (int i = 0; i < kinds.size(); i++)
+            if (kinds.get(i) == null) kinds.set(i, Kind.INT);
+    }
+
+    /**
+     * Gives an operand without sort the sort of the other operand, or of the literal it is compared with.
+     *
+     * @return true if a sort was set.
+     */
+    private boolean unify(String a, String b) {
+        if (a == null || b == null) return false;
+        Integer x = variable(a);
+        Integer y = variable(b);
+        Kind kindA = x != null ? kinds.get(x) : literalKind(a);
+        Kind kindB = y != null ? kinds.get(y) : literalKind(b);
+        if (x != null && kindA == null && kindB != null) {
+            kinds.set(x, kindB);
+            return true;
+        }
+        if (y != null && kindB == null && kindA != null) {
+            kinds.set(y, kindA);
+            return true;
+        }
+        return false;
+    }
+
+    private static Kind literalKind(String operand) {
+        if (operand.equals("null")) return Kind.OBJECT;
+        if (isString(operand)) return Kind.STRING;
+        if (isNumber(operand)) return Kind.INT;
+        if (operand.startsWith("new ")) return Kind.OBJECT;
+        return null;
+    }
+
+    private static Kind kindOfType(String type) {
+        switch (type) {
+            case "int":
+            case "long":
+            case "short":
+            case "byte":
+            case "char":
+                return Kind.INT;
+            case "float":
+            case "double":
+                return Kind.REAL;
+            case "boolean":
+                return Kind.BOOL;
+            case "java.lang.String":
+            case "java.lang.CharSequence":
+                return Kind.STRING;
+            default:
+                return Kind.OBJECT;
+        }
+    }
+
+    /**
+     * The effect of a code line: an assignment or a branch condition, with its operands as written.
+     */
+    public class Statement {
+        private int assigned = -1;
+        private String type;
+        private String value;
+        private String comparedLeft;
+        private String comparedRight;
+        private String arithmetic;
+        private String arithmeticLeft;
+        private String arithmeticRight;
+        private String extraName;
+        private String extraType;
+
+        private String operator;
+        private String left;
+        private String right;
+
+        private Statement(String codeLine) {
+            if (codeLine.startsWith("if") && codeLine.contains(" goto ")) {
+                Matcher matcher = conditionPattern.matcher(codeLine);
+                if (matcher.find()) {
+                    operator = matcher.group("operator");
+                    left = matcher.group("left").trim();
+                    right = matcher.group("right").trim();
+                    if (isVariable(left)) declare(left);
+                    if (isVariable(right)) declare(right);
+                }
+                return;
+            }
+
+            String assignedName = VariableVersioning.definedVariable(codeLine);
+            if (assignedName == null) return;
+            assigned = declare(assignedName);
+
+            Matcher assignation = assignationPattern.matcher(codeLine);
+            assignation.find();
+            if (assignation.group("type") != null)
+                type = assignation.group("type").replaceAll("[()]", "");
+
+            Matcher extra = patternExtra.matcher(codeLine);
+            Matcher action = patterGetAction.matcher(codeLine);
+            if (extra.find()) {
+                extraName = extra.group("extraName");
+                extraType = typeName(type);
+                return;
+            }
+            if (action.find()) {
+                extraName = "action";
+                extraType = typeName(type);
+                return;
+            }
+
+            String expression = codeLine.substring(assignation.end()).trim();
+            Matcher comparison = stringComparisonPattern.matcher(expression);
+            Matcher operation = arithmeticPattern.matcher(expression);
+            if (isVariable(expression) || literalKind(expression) != null) {
+                value = expression;
+                if (isVariable(expression)) declare(expression);
+            } else if (comparison.find()) {
+                comparedLeft = comparison.group("left").trim();
+                comparedRight = comparison.group("right").trim();
+                if (isVariable(comparedLeft)) declare(comparedLeft);
+                if (isVariable(comparedRight)) declare(comparedRight);
+            } else if (operation.find()) {
+                arithmetic = operation.group("operator");
+                arithmeticLeft = operation.group("left");
+                arithmeticRight = operation.group("right");
+                if (isVariable(arithmeticLeft)) declare(arithmeticLeft);
+                if (isVariable(arithmeticRight)) declare(arithmeticRight);
+            }
+        }
+
+        /**
+         * @return The index of the variable assigned, or -1 if the statement is not an assignment.
+         */
+        public int getAssigned() {
+            return assigned;
+        }
+
+        /**
+         * @return The literal or variable assigned, or null.
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * @return The left operand of the relabelled {@code String.equals} assigned, or null.
+         */
+        public String getComparedLeft() {
+            return comparedLeft;
+        }
+
+        /**
+         * @return The right operand of the relabelled {@code String.equals} assigned, or null.
+         */
+        public String getComparedRight() {
+            return comparedRight;
+        }
+
+        /**
+         * @return The operator of the arithmetic operation assigned ({@code + - * / %}), or null.
+         */
+        public String getArithmetic() {
+            return arithmetic;
+        }
+
+        /**
+         * @return The left operand of the arithmetic operation assigned, or null.
+         */
+        public String getArithmeticLeft() {
+            return arithmeticLeft;
+        }
+
+        /**
+         * @return The right operand of the arithmetic operation assigned, or null.
+         */
+        public String getArithmeticRight() {
+            return arithmeticRight;
+        }
+
+        /**
+         * @return The name of the Intent extra assigned ({@code action} for {@code getAction}), or null.
+         */
+        public String getExtraName() {
+            return extraName;
+        }
+
+        /**
+         * @return The type of the Intent extra assigned as written by the Z3 solver script, or null.
+         */
+        public String getExtraType() {
+            return extraType;
+        }
+
+        /**
+         * @return The comparison operator of the branch condition, or null if the statement is not a branch.
+         */
+        public String getOperator() {
+            return operator;
+        }
+
+        /**
+         * @return The left operand of the branch condition, or null.
+         */
+        public String getLeft() {
+            return left;
+        }
+
+        /**
+         * @return The right operand of the branch condition, or null.
+         */
+        public String getRight() {
+            return right;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package org.IntentSymbolicExecution;
+
+import java.util.*;
+
+/**
+ * Counts the paths of a {@link PathGraph} before enumerating them.
+ * <p>
+ * Back edges (found by a depth-first search from the roots) are ignored and the paths of the remaining acyclic graph
+ * are counted with a dynamic program in post-order. A simple path can never take a back edge towards a loop header
+ * that dominates it, so the count is exact for reducible graphs, which is what Java compilers produce; for irreducible
+ * regions it is an estimate. Counts saturate at {@link Long#MAX_VALUE}.
+ * <p>
+ * The same tables give, for every branch, the number of paths it adds and allow drawing paths uniformly at random.
+ */
+public class PathCounter {
+
+    private final PathGraph graph;
+
+    /**
+     * Number of paths from each node to a leaf, and from a root to each node.
+     */
+    private final long[] pathsFrom;
+    private final long[] pathsTo;
+
+    /**
+     * Back edges, by position in the successor list of their source: {@code backEdges[node]} has bit {@code i} set
+     * if the i-th successor of {@code node} closes a loop.
+     */
+    private final BitSet[] backEdges;
+
+    private final long pathCount;
+
+    /**
+     * Counts the paths of the given graph.
+     *
+     * @param graph The graph.
+     */
+    public PathCounter(PathGraph graph) {
+        this.graph = graph;
+        int size = graph.size();
+        pathsFrom = new long[size];
+        pathsTo = new long[size];
+        backEdges = new BitSet[size];
+
+        int[] postOrder = new int[size];
+        int count = depthFirstSearch(postOrder);
+
+        // Post-order: successors along forward edges are done before their predecessors.
+        for (int i = 0; i < count; i++) {
+            int node = postOrder[i];
+            if (graph.isLeaf(node)) {
+                pathsFrom[node] = 1;
+                continue;
+            }
+            long paths = 0;
+            for (int s = 0; s < graph.successorCount(node); s++)
+                if (!isBackEdge(node, s))
+                    paths = saturatedAdd(paths, pathsFrom[graph.successor(node, s)]);
+            pathsFrom[node] = paths;
+        }
+
+        for (int root : graph.roots())
+            pathsTo[root] = 1;
+        for (int i = count - 1; i >= 0; i--) {
+            int node = postOrder[i];
+            for (int s = 0; s < graph.successorCount(node); s++)
+                if (!isBackEdge(node, s)) {
+                    int succ = graph.successor(node, s);
+                    pathsTo[succ] = saturatedAdd(pathsTo[succ], pathsTo[node]);
+                }
+        }
+
+        long total = 0;
+        for (int root : graph.roots())
+            total = saturatedAdd(total, pathsFrom[root]);
+        pathCount = total;
+    }
+
+    /**
+     * @return The number of paths from the roots to the leaves.
+     */
+    public long pathCount() {
+        return pathCount;
+    }
+
+    /**
+     * Returns the branches responsible for most paths.
+     * <p>
+     * The paths added by a branch are the paths that would disappear if the branch only had its largest successor:
+     * {@code pathsTo(branch) * (pathsFrom(branch) - max pathsFrom(successor))}.
+     *
+     * @param limit The maximum number of branches to return.
+     * @return The branches adding paths, the most expensive first.
+     */
+    public List<Blowup> blowups(int limit) {
+        List<Blowup> blowups = new ArrayList<>();
+        for (int node = 0; node < graph.size(); node++) {
+            if (graph.successorCount(node) < 2 || pathsTo[node] == 0) continue;
+            long largestSuccessor = 0;
+            for (int s = 0; s < graph.successorCount(node); s++)
+                if (!isBackEdge(node, s))
+                    largestSuccessor = Math.max(largestSuccessor, pathsFrom[graph.successor(node, s)]);
+            long added = saturatedMultiply(pathsTo[node], pathsFrom[node] - largestSuccessor);
+            if (added > 0)
+                blowups.add(new Blowup(node, added, largestSuccessor == 0 ? 0 : (double) pathsFrom[node] / largestSuccessor));
+        }
+        blowups.sort(Comparator.comparingLong(Blowup::getAddedPaths).reversed());
+        return blowups.subList(0, Math.min(limit, blowups.size()));
+    }
+
+    /**
+     * Draws a path uniformly at random among the counted paths: at each node the successor is chosen with a
+     * probability proportional to the number of paths from it.
+     *
+     * @param random The source of randomness.
+     * @param path   The buffer receiving the node ids of the path, of at least {@code graph.size()} elements.
+     * @return The number of nodes of the path, or 0 if the graph has no path.
+     */
+    public int samplePath(Random random, int[] path) {
+        if (pathCount == 0) return 0;
+
+        int node = -1;
+        long target = randomBelow(random, pathCount);
+        for (int root : graph.roots()) {
+            if (target < pathsFrom[root]) {
+                node = root;
+                break;
+            }
+            target -= pathsFrom[root];
+        }
+
+        int length = 0;
+        while (true) {
+            path[length++] = node;
+            if (graph.isLeaf(node))
+                return length;
+
+            target = randomBelow(random, pathsFrom[node]);
+            int next = -1;
+            for (int s = 0; s < graph.successorCount(node); s++) {
+                if (isBackEdge(node, s)) continue;
+                int succ = graph.successor(node, s);
+                if (target < pathsFrom[succ]) {
+                    next = succ;
+                    break;
+                }
+                target -= pathsFrom[succ];
+            }
+            node = next;
+        }
+    }
+
+    /**
+     * A branch and the paths it adds.
+     */
+    public static class Blowup {
+        private final int node;
+        private final long addedPaths;
+        private final double factor;
+
+        private Blowup(int node, long addedPaths, double factor) {
+            this.node = node;
+            this.addedPaths = addedPaths;
+            this.factor = factor;
+        }
+
+        /**
+         * @return The node id of the branch.
+         */
+        public int getNode() {
+            return node;
+        }
+
+        /**
+         * @return The number of paths that would disappear if the branch only had its largest successor.
+         */
+        public long getAddedPaths() {
+            return addedPaths;
+        }
+
+        /**
+         * @return The number of paths from the branch divided by the number of paths from its largest successor.
+         */
+        public double getFactor() {
+            return factor;
+        }
+    }
+
+    private boolean isBackEdge(int node, int successorIndex) {
+        return backEdges[node] != null && backEdges[node].get(successorIndex);
+    }
+
+    /**
+     * Iterative depth-first search from the roots, marking back edges (towards a node still on the stack).
+     *
+     * @param postOrder Receives the reached nodes in post-order.
+     * @return The number of reached nodes.
+     */
+    private int depthFirstSearch(int[] postOrder) {
+        int size = graph.size();
+        int[] stack = new int[size];
+        int[] cursor = new int[size];
+        BitSet visited = new BitSet(size);
+        BitSet onStack = new BitSet(size);
+        int count = 0;
+
+        for (int root : graph.roots()) {
+            if (visited.get(root)) continue;
+            int top = 0;
+            stack[0] = root;
+            visited.set(root);
+            onStack.set(root);
+            while (top >= 0) {
+                int node = stack[top];
+                if (cursor[node] < graph.successorCount(node)) {
+                    int s = cursor[node]++;
+                    int succ = graph.successor(node, s);
+                    if (onStack.get(succ)) {
+                        if (backEdges[node] == null)
+                            backEdges[node] = new BitSet();
+                        backEdges[node].set(s);
+                    } else if (!visited.get(succ)) {
+                        visited.set(succ);
+                        onStack.set(succ);
+                        stack[++top] = succ;
+                    }
+                } else {
+                    onStack.clear(node);
+                    postOrder[count++] = node;
+                    top--;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return A uniform value in {@code [0, bound)}: the 63-bit draws above the largest multiple of the bound are
+     * rejected, since the remainder would favour the low values.
+     */
+    private static long randomBelow(Random random, long bound) {
+        long bits;
+        long value;
+        do {
+            bits = random.nextLong() >>> 1;
+            value = bits % bound;
+        } while (bits - value + (bound - 1) < 0);
+        return value;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        try {
+            return Math.multiplyExact(a, b);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
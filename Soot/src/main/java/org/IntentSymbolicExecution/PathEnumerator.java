@@ -0,0 +1,219 @@
+package org.IntentSymbolicExecution;
+
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Iterative depth-first enumeration of the paths of a {@link PathGraph}, from its roots to its leaves.
+ * <p>
+ * The search is resumable: each call to {@link #advance()} runs until the next path is complete and the path is
+ * then available in {@link #path()}. The current path is an explicit int stack, with the position of the next
+ * successor to explore for each of its nodes and a {@link BitSet} marking the nodes on the path, so that a node
+ * never appears twice in a path. All buffers are allocated once: the search itself does not allocate.
+ */
+public class PathEnumerator {
+
+    /**
+     * {@link #advance()} result: a complete path is available in {@link #path()}.
+     */
+    public static final int PATH = 0;
+
+    /**
+     * {@link #advance()} result: the last node of {@link #path()} is a branch that the split predicate asked to
+     * hand over. Its successors are not explored unless {@link #advance()} is called without {@link #skipBranch()}.
+     */
+    public static final int BRANCH = 1;
+
+    /**
+     * {@link #advance()} result: the enumeration is over.
+     */
+    public static final int END = 2;
+
+    private final PathGraph graph;
+
+    private final int[] path;
+    private final int[] cursor;
+    private final BitSet onPath;
+    private int length;
+
+    /**
+     * Number of nodes of the path that belong to the prefix and are never backtracked.
+     */
+    private final int base;
+    private final int[] starts;
+    private int nextStart = 0;
+
+    private boolean leafOnTop = false;
+    private boolean branchOnTop = false;
+    private IntPredicate splitPredicate = null;
+
+    private PrefixCheck prefixCheck = null;
+    private long pruned = 0;
+
+    /**
+     * Enumerates all paths from the roots of the graph.
+     *
+     * @param graph The graph.
+     */
+    public PathEnumerator(PathGraph graph) {
+        this(graph, graph.roots(), new int[0], 0);
+    }
+
+    /**
+     * Enumerates the paths that extend a given prefix.
+     *
+     * @param graph        The graph.
+     * @param prefix       The node ids of the prefix.
+     * @param prefixLength The number of nodes of the prefix (at least one).
+     */
+    public PathEnumerator(PathGraph graph, int[] prefix, int prefixLength) {
+        this(graph, new int[]{prefix[prefixLength - 1]}, prefix, prefixLength - 1);
+    }
+
+    private PathEnumerator(PathGraph graph, int[] starts, int[] prefix, int base) {
+        this.graph = graph;
+        this.starts = starts;
+        this.base = base;
+        this.path = new int[graph.size() + 1];
+        this.cursor = new int[graph.size() + 1];
+        this.onPath = new BitSet(graph.size());
+
+        System.arraycopy(prefix, 0, path, 0, base);
+        for (int i = 0; i < base; i++)
+            onPath.set(prefix[i]);
+        this.length = base;
+    }
+
+    /**
+     * Sets a predicate deciding, for each branch reached, whether {@link #advance()} should stop and return
+     * {@link #BRANCH} instead of exploring it.
+     *
+     * @param splitPredicate Tested with the id of each node with more than one successor.
+     */
+    public void setSplitPredicate(IntPredicate splitPredicate) {
+        this.splitPredicate = splitPredicate;
+    }
+
+    /**
+     * Cuts the edges rejected by a check of the current path, such as {@link PathFeasibility}, with the subtrees below
+     * them. The nodes of the prefix are replayed, so the check must be set before the first call to {@link #advance()}.
+     *
+     * @param prefixCheck A check on a new state, not entered yet.
+     */
+    public void setPrefixCheck(PrefixCheck prefixCheck) {
+        this.prefixCheck = prefixCheck;
+        for (int i = 0; i < length; i++)
+            prefixCheck.enter(i > 0 ? path[i - 1] : -1, path[i]);
+    }
+
+    /**
+     * @return The number of edges cut by the prefix check so far.
+     */
+    public long pruned() {
+        return pruned;
+    }
+
+    /**
+     * Resumes the search.
+     *
+     * @return {@link #PATH}, {@link #BRANCH} or {@link #END}.
+     */
+    public int advance() {
+        if (leafOnTop) {
+            pop();
+            leafOnTop = false;
+        }
+        branchOnTop = false;
+
+        while (true) {
+            int node;
+            if (length == base) {
+                if (nextStart >= starts.length)
+                    return END;
+                node = starts[nextStart++];
+            } else {
+                int top = path[length - 1];
+                int position = cursor[length - 1];
+                if (position >= graph.successorCount(top)) {
+                    pop();
+                    continue;
+                }
+                cursor[length - 1] = position + 1;
+                node = graph.successor(top, position);
+                if (onPath.get(node))
+                    continue;
+            }
+            if (prefixCheck != null && !prefixCheck.enter(length > 0 ? path[length - 1] : -1, node)) {
+                pruned++;
+                continue;
+            }
+
+            push(node);
+            if (graph.isLeaf(node)) {
+                leafOnTop = true;
+                return PATH;
+            }
+            if (splitPredicate != null && graph.successorCount(node) > 1 && splitPredicate.test(node)) {
+                branchOnTop = true;
+                return BRANCH;
+            }
+        }
+    }
+
+    /**
+     * Advances to the next complete path, exploring every branch.
+     *
+     * @return true if a path is available in {@link #path()}, false if the enumeration is over.
+     */
+    public boolean next() {
+        int result;
+        do {
+            result = advance();
+        } while (result == BRANCH);
+        return result == PATH;
+    }
+
+    /**
+     * Marks the branch returned by the last {@link #advance()} as explored, so that the search backtracks from it.
+     */
+    public void skipBranch() {
+        if (branchOnTop)
+            cursor[length - 1] = graph.successorCount(path[length - 1]);
+    }
+
+    /**
+     * @return The node ids of the current path. The buffer is reused by the next call to {@link #advance()}.
+     */
+    public int[] path() {
+        return path;
+    }
+
+    /**
+     * @return The number of nodes of the current path.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @param node A node id.
+     * @return true if the node is on the current path.
+     */
+    public boolean isOnPath(int node) {
+        return onPath.get(node);
+    }
+
+    private void push(int node) {
+        path[length] = node;
+        cursor[length] = 0;
+        onPath.set(node);
+        length++;
+    }
+
+    private void pop() {
+        length--;
+        onPath.clear(path[length]);
+        if (prefixCheck != null)
+            prefixCheck.leave();
+    }
+}
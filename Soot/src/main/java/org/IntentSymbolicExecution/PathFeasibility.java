@@ -0,0 +1,596 @@
+package org.IntentSymbolicExecution;
+
+import org.IntentSymbolicExecution.ControlFlowGraph.GraphNode;
+
+import java.util.*;
+import java.util.regex.Matcher;
+
+import static org.IntentSymbolicExecution.RegexUtils.*;
+
+/**
+ * Detects the infeasible paths of a {@link PathGraph} while they are built, with a lightweight abstract domain.
+ * <p>
+ * Along a path prefix, each variable has an abstract value: an integer interval, its nullness, the string it is known
+ * to be equal to or the strings it is known to differ from and, for a boolean assigned by a string comparison
+ * ({@code $z0 = $r2 == "*"}), the comparison it stands for. Assignments set the value of the assigned variable and
+ * branch outcomes refine the values of the compared variables. A branch outcome that contradicts the prefix, such as
+ * {@code $r2 != null} after {@code $r2 == null}, makes every path through it infeasible: the search can cut the whole
+ * subtree below it instead of enumerating paths that the solver would reject one by one.
+ * <p>
+ * The facts follow the model of the renamed paths ({@link VariableVersioning}): each assignment of a name defines a
+ * new value and the other statements leave the variables unchanged. A path is only cut when its conditions contradict
+ * each other in that model. An assignment that is not understood makes the variable unknown, and a condition that is
+ * not understood is ignored.
+ * <p>
+ * Only the outcomes of the Intent-related branches are assumed. The other branches may have been collapsed by
+ * {@link GraphSlicer} to an arbitrary successor, standing for all of them: cutting that successor would drop the
+ * paths of its feasible siblings too.
+ * <p>
+ * The code line of every node is parsed once. A {@link State} follows a depth-first search: values are immutable and
+ * each change is recorded in a trail, so that leaving a node restores the previous values without copying them.
+ */
+public class PathFeasibility {
+
+    /**
+     * Comparison operators, in the order of their negations: {@code operator ^ 1} is the negation.
+     */
+    private static final int EQ = 0;
+    private static final int NE = 1;
+    private static final int LT = 2;
+    private static final int GE = 3;
+    private static final int GT = 4;
+    private static final int LE = 5;
+
+    /**
+     * Nullness of a value.
+     */
+    private static final int MAYBE_NULL = 0;
+    private static final int NULL = 1;
+    private static final int NON_NULL = 2;
+
+    private final PathGraph graph;
+
+    /**
+     * Statement of each node of the graph, by node id.
+     */
+    private final Statement[] statements;
+
+    /**
+     * For each Intent-related branch, the successor reached when its condition holds, or -1 if the outcome of its
+     * edges is unknown or not assumed.
+     */
+    private final int[] trueSuccessors;
+    private final int variableCount;
+
+    /**
+     * Parses the code line of every node of the graph.
+     *
+     * @param graph The graph whose paths are checked.
+     */
+    public PathFeasibility(PathGraph graph) {
+        this.graph = graph;
+
+        Map<String, Integer> variables = new HashMap<>();
+        Map<GraphNode, Statement> parsed = new IdentityHashMap<>();
+        statements = new Statement[graph.size()];
+        for (int node = 0; node < graph.size(); node++)
+            statements[node] = parsed.computeIfAbsent(graph.node(node), n -> new Statement(n.getValue(), variables));
+        variableCount = variables.size();
+
+        trueSuccessors = new int[graph.size()];
+        for (int node = 0; node < graph.size(); node++)
+            trueSuccessors[node] = statements[node].operator >= 0 && graph.isRelevantBranch(node)
+                    ? graph.trueSuccessor(node) : -1;
+    }
+
+    /**
+     * @return A new state, at the start of a path.
+     */
+    public State newState() {
+        return new State();
+    }
+
+    /**
+     * @param path   The node ids of a path.
+     * @param length The number of nodes of the path.
+     * @return false if the branch outcomes of the path contradict each other.
+     */
+    public boolean isFeasible(int[] path, int length) {
+        State state = newState();
+        for (int i = 0; i < length; i++)
+            if (!state.enter(i > 0 ? path[i - 1] : -1, path[i]))
+                return false;
+        return true;
+    }
+
+    /**
+     * The abstract values of the variables along a path, updated node by node.
+     */
+    public class State implements PrefixCheck {
+        private final Value[] values = new Value[variableCount];
+
+        /**
+         * Identifier of the assignment that defined the current value of each variable, to invalidate the
+         * comparisons it took part in when it is assigned again.
+         */
+        private final int[] definitions = new int[variableCount];
+        private int nextDefinition = 1;
+
+        private int[] trailVariables = new int[64];
+        private Value[] trailValues = new Value[64];
+        private int[] trailDefinitions = new int[64];
+        private int trailSize = 0;
+
+        /**
+         * Trail size before each node of the path.
+         */
+        private int[] marks = new int[64];
+        private int depth = 0;
+
+        private State() {
+            Arrays.fill(values, Value.UNKNOWN);
+        }
+
+        /**
+         * Extends the path with a node: assumes the outcome of the edge from the previous node, then runs the
+         * statement of the node.
+         *
+         * @param previous The previous node of the path, or -1 for the first node.
+         * @param node     The node.
+         * @return false if the edge contradicts the path, which is then left unchanged.
+         */
+        @Override
+        public boolean enter(int previous, int node) {
+            int mark = trailSize;
+            if (previous >= 0 && trueSuccessors[previous] >= 0
+                    && !assume(statements[previous], node == trueSuccessors[previous])) {
+                undo(mark);
+                return false;
+            }
+            execute(statements[node]);
+
+            if (depth == marks.length)
+                marks = Arrays.copyOf(marks, depth * 2);
+            marks[depth++] = mark;
+            return true;
+        }
+
+        /**
+         * Removes the last node of the path.
+         */
+        @Override
+        public void leave() {
+            undo(marks[--depth]);
+        }
+
+        private void execute(Statement statement) {
+            if (statement.assigned < 0) return;
+            Value value;
+            if (statement.copied >= 0)
+                value = values[statement.copied];
+            else if (statement.tested >= 0)
+                value = comparison(statement.tested, statement.testedString);
+            else
+                value = statement.value;
+            record(statement.assigned);
+            values[statement.assigned] = value;
+            definitions[statement.assigned] = nextDefinition++;
+        }
+
+        /**
+         * @return The value of a boolean assigned by the comparison of a variable with a string.
+         */
+        private Value comparison(int variable, String string) {
+            Value tested = values[variable];
+            if (tested.string != null)
+                return tested.string.equals(string) ? Value.TRUE : Value.FALSE;
+            if (Exclusion.contains(tested.excluded, string))
+                return Value.FALSE;
+            return new Value(0, 1, MAYBE_NULL, null, null, variable, string, definitions[variable]);
+        }
+
+        /**
+         * Assumes the condition of a branch, or its negation.
+         *
+         * @return false if it contradicts the path.
+         */
+        private boolean assume(Statement branch, boolean outcome) {
+            int operator = outcome ? branch.operator : branch.operator ^ 1;
+            Operand left = branch.left;
+            Operand right = branch.right;
+            if (left.variable < 0 && right.variable >= 0) {
+                left = branch.right;
+                right = branch.left;
+                operator = mirror(operator);
+            }
+
+            if (left.variable < 0) {
+                if (left.isNumber() && right.isNumber())
+                    return holds(left.number, operator, right.number);
+                return true;
+            }
+            if (right.variable >= 0)
+                return compareVariables(left.variable, operator, right.variable);
+            if (right.isNull)
+                return compareNull(left.variable, operator);
+            if (right.string != null)
+                return compareString(left.variable, operator, right.string);
+            if (right.isNumber())
+                return compareNumber(left.variable, operator, right.number);
+            return true;
+        }
+
+        private boolean compareNull(int variable, int operator) {
+            Value value = values[variable];
+            if (operator == EQ) {
+                if (value.nullness == NON_NULL) return false;
+                if (value.nullness != NULL) refine(variable, value.withNullness(NULL));
+            } else if (operator == NE) {
+                if (value.nullness == NULL) return false;
+                if (value.nullness != NON_NULL) refine(variable, value.withNullness(NON_NULL));
+            }
+            return true;
+        }
+
+        private boolean compareString(int variable, int operator, String string) {
+            Value value = values[variable];
+            if (operator == EQ) {
+                if (value.string != null) return value.string.equals(string);
+                if (value.nullness == NULL || Exclusion.contains(value.excluded, string)) return false;
+                refine(variable, value.withString(string));
+            } else if (operator == NE) {
+                if (value.string != null) return !value.string.equals(string);
+                if (!Exclusion.contains(value.excluded, string))
+                    refine(variable, value.withExclusion(string));
+            }
+            return true;
+        }
+
+        private boolean compareNumber(int variable, int operator, long number) {
+            Value value = values[variable];
+            long low = value.low;
+            long high = value.high;
+            switch (operator) {
+                case EQ:
+                    low = Math.max(low, number);
+                    high = Math.min(high, number);
+                    break;
+                case NE:
+                    if (low == number && high == number) return false;
+                    if (low == number) low++;
+                    if (high == number) high--;
+                    break;
+                case LT:
+                    if (number == Long.MIN_VALUE) return false;
+                    high = Math.min(high, number - 1);
+                    break;
+                case LE:
+                    high = Math.min(high, number);
+                    break;
+                case GT:
+                    if (number == Long.MAX_VALUE) return false;
+                    low = Math.max(low, number + 1);
+                    break;
+                case GE:
+                    low = Math.max(low, number);
+                    break;
+            }
+            return refineInterval(variable, low, high);
+        }
+
+        private boolean compareVariables(int left, int operator, int right) {
+            if (operator == GT || operator == GE)
+                return compareVariables(right, mirror(operator), left);
+
+            Value a = values[left];
+            Value b = values[right];
+            switch (operator) {
+                case EQ: {
+                    long low = Math.max(a.low, b.low);
+                    long high = Math.min(a.high, b.high);
+                    return refineInterval(left, low, high) && refineInterval(right, low, high);
+                }
+                case NE:
+                    return !(a.low == a.high && b.low == b.high && a.low == b.low);
+                case LT:
+                    if (b.high == Long.MIN_VALUE || a.low == Long.MAX_VALUE) return false;
+                    return refineInterval(left, a.low, Math.min(a.high, b.high - 1))
+                            && refineInterval(right, Math.max(b.low, a.low + 1), b.high);
+                default: // LE
+                    return refineInterval(left, a.low, Math.min(a.high, b.high))
+                            && refineInterval(right, Math.max(b.low, a.low), b.high);
+            }
+        }
+
+        /**
+         * Narrows the interval of a variable. A boolean that stands for a string comparison and becomes known also
+         * refines the compared variable, if it was not assigned since.
+         *
+         * @return false if the interval is empty.
+         */
+        private boolean refineInterval(int variable, long low, long high) {
+            if (low > high) return false;
+            Value value = values[variable];
+            if (low == value.low && high == value.high) return true;
+            refine(variable, value.withInterval(low, high));
+
+            if (value.tested < 0 || definitions[value.tested] != value.testedDefinition) return true;
+            if (low == 0 && high == 0)
+                return compareString(value.tested, NE, value.testedString);
+            if (low > 0 || high < 0)
+                return compareString(value.tested, EQ, value.testedString);
+            return true;
+        }
+
+        /**
+         * Replaces the value of a variable with a more precise one, keeping its definition.
+         */
+        private void refine(int variable, Value value) {
+            record(variable);
+            values[variable] = value;
+        }
+
+        private void record(int variable) {
+            if (trailSize == trailVariables.length) {
+                trailVariables = Arrays.copyOf(trailVariables, trailSize * 2);
+                trailValues = Arrays.copyOf(trailValues, trailSize * 2);
+                trailDefinitions = Arrays.copyOf(trailDefinitions, trailSize * 2);
+            }
+            trailVariables[trailSize] = variable;
+            trailValues[trailSize] = values[variable];
+            trailDefinitions[trailSize] = definitions[variable];
+            trailSize++;
+        }
+
+        private void undo(int mark) {
+            while (trailSize > mark) {
+                trailSize--;
+                values[trailVariables[trailSize]] = trailValues[trailSize];
+                definitions[trailVariables[trailSize]] = trailDefinitions[trailSize];
+                trailValues[trailSize] = null;
+            }
+        }
+    }
+
+    /**
+     * @return The operator with swapped operands: {@code a < b} is {@code b > a}.
+     */
+    private static int mirror(int operator) {
+        switch (operator) {
+            case LT:
+                return GT;
+            case GT:
+                return LT;
+            case LE:
+                return GE;
+            case GE:
+                return LE;
+            default:
+                return operator;
+        }
+    }
+
+    private static boolean holds(long left, int operator, long right) {
+        switch (operator) {
+            case EQ:
+                return left == right;
+            case NE:
+                return left != right;
+            case LT:
+                return left < right;
+            case LE:
+                return left <= right;
+            case GT:
+                return left > right;
+            default:
+                return left >= right;
+        }
+    }
+
+    private static int operator(String operator) {
+        switch (operator) {
+            case "==":
+                return EQ;
+            case "!=":
+                return NE;
+            case "<":
+                return LT;
+            case "<=":
+                return LE;
+            case ">":
+                return GT;
+            default:
+                return GE;
+        }
+    }
+
+    /**
+     * The effect of a code line: an assignment or a branch condition.
+     */
+    private static class Statement {
+        private int assigned = -1;
+        private Value value = Value.UNKNOWN;
+        private int copied = -1;
+        private int tested = -1;
+        private String testedString;
+
+        private int operator = -1;
+        private Operand left;
+        private Operand right;
+
+        Statement(String codeLine, Map<String, Integer> variables) {
+            if (codeLine.startsWith("if") && codeLine.contains(" goto ")) {
+                Matcher matcher = conditionPattern.matcher(codeLine);
+                if (matcher.find()) {
+                    left = new Operand(matcher.group("left"), variables);
+                    right = new Operand(matcher.group("right"), variables);
+                    operator = operator(matcher.group("operator"));
+                }
+                return;
+            }
+
+            String assignedName = VariableVersioning.definedVariable(codeLine);
+            if (assignedName == null) return;
+            assigned = variables.computeIfAbsent(assignedName, name -> variables.size());
+
+            Matcher assignation = assignationPattern.matcher(codeLine);
+            assignation.find();
+            String type = assignation.group("type");
+            if (type != null)
+                value = Value.ofType(type.substring(1, type.length() - 1));
+
+            String expression = codeLine.substring(assignation.end()).trim();
+            Operand operand = new Operand(expression, variables);
+            if (operand.variable >= 0)
+                copied = operand.variable;
+            else if (operand.isNull)
+                value = Value.NULL_CONSTANT;
+            else if (operand.string != null)
+                value = new Value(Long.MIN_VALUE, Long.MAX_VALUE, NON_NULL, operand.string, null, -1, null, 0);
+            else if (operand.isNumber())
+                value = new Value(operand.number, operand.number, MAYBE_NULL, null, null, -1, null, 0);
+            else if (expression.startsWith("new "))
+                value = Value.NEW_OBJECT;
+            else {
+                Matcher comparison = stringComparisonPattern.matcher(expression);
+                if (comparison.find()) {
+                    Operand a = new Operand(comparison.group("left"), variables);
+                    Operand b = new Operand(comparison.group("right"), variables);
+                    if (a.variable >= 0 && b.string != null) {
+                        tested = a.variable;
+                        testedString = b.string;
+                    } else if (b.variable >= 0 && a.string != null) {
+                        tested = b.variable;
+                        testedString = a.string;
+                    } else
+                        value = Value.BOOLEAN;
+                }
+            }
+        }
+    }
+
+    /**
+     * A side of a comparison or the right side of an assignment: a variable, a constant, or something else.
+     */
+    private static class Operand {
+        private int variable = -1;
+        private boolean isNull = false;
+        private String string;
+        private Long number;
+
+        Operand(String text, Map<String, Integer> variables) {
+            text = text.trim();
+            if (text.equals("null"))
+                isNull = true;
+            else if (stringLiteralPattern.matcher(text).matches())
+                string = text;
+            else if (text.matches("-?\\d{1,18}L?"))
+                number = Long.parseLong(text.endsWith("L") ? text.substring(0, text.length() - 1) : text);
+            else if (localTokenPattern.matcher(text).matches() && !Character.isDigit(text.charAt(0))) {
+                String name = text.startsWith("$") ? text.substring(1) : text;
+                variable = variables.computeIfAbsent(name, n -> variables.size());
+            }
+        }
+
+        boolean isNumber() {
+            return number != null;
+        }
+    }
+
+    /**
+     * The abstract value of a variable. Each component is a fact that holds along the path; the default components
+     * are the unknown ones.
+     */
+    private static class Value {
+        private static final Value UNKNOWN = new Value(Long.MIN_VALUE, Long.MAX_VALUE, MAYBE_NULL, null, null, -1, null, 0);
+        private static final Value NULL_CONSTANT = new Value(Long.MIN_VALUE, Long.MAX_VALUE, NULL, null, null, -1, null, 0);
+        private static final Value NEW_OBJECT = new Value(Long.MIN_VALUE, Long.MAX_VALUE, NON_NULL, null, null, -1, null, 0);
+        private static final Value BOOLEAN = new Value(0, 1, MAYBE_NULL, null, null, -1, null, 0);
+        private static final Value TRUE = new Value(1, 1, MAYBE_NULL, null, null, -1, null, 0);
+        private static final Value FALSE = new Value(0, 0, MAYBE_NULL, null, null, -1, null, 0);
+
+        private final long low;
+        private final long high;
+        private final int nullness;
+
+        /**
+         * The string the value is equal to, as a literal, or null if unknown.
+         */
+        private final String string;
+        private final Exclusion excluded;
+
+        /**
+         * For a boolean assigned by {@code tested == testedString}: the compared variable, the string and the
+         * definition of the variable at the time of the comparison. -1 otherwise.
+         */
+        private final int tested;
+        private final String testedString;
+        private final int testedDefinition;
+
+        Value(long low, long high, int nullness, String string, Exclusion excluded, int tested, String testedString, int testedDefinition) {
+            this.low = low;
+            this.high = high;
+            this.nullness = nullness;
+            this.string = string;
+            this.excluded = excluded;
+            this.tested = tested;
+            this.testedString = testedString;
+            this.testedDefinition = testedDefinition;
+        }
+
+        /**
+         * @return The unknown value of a primitive type, whose interval is the range of the type.
+         */
+        static Value ofType(String type) {
+            switch (type) {
+                case "boolean":
+                    return BOOLEAN;
+                case "byte":
+                    return new Value(Byte.MIN_VALUE, Byte.MAX_VALUE, MAYBE_NULL, null, null, -1, null, 0);
+                case "char":
+                    return new Value(Character.MIN_VALUE, Character.MAX_VALUE, MAYBE_NULL, null, null, -1, null, 0);
+                case "short":
+                    return new Value(Short.MIN_VALUE, Short.MAX_VALUE, MAYBE_NULL, null, null, -1, null, 0);
+                case "int":
+                    return new Value(Integer.MIN_VALUE, Integer.MAX_VALUE, MAYBE_NULL, null, null, -1, null, 0);
+                default:
+                    return UNKNOWN;
+            }
+        }
+
+        Value withInterval(long low, long high) {
+            return new Value(low, high, nullness, string, excluded, tested, testedString, testedDefinition);
+        }
+
+        Value withNullness(int nullness) {
+            return new Value(low, high, nullness, string, excluded, tested, testedString, testedDefinition);
+        }
+
+        Value withString(String string) {
+            return new Value(low, high, NON_NULL, string, null, tested, testedString, testedDefinition);
+        }
+
+        Value withExclusion(String string) {
+            return new Value(low, high, nullness, this.string, new Exclusion(string, excluded), tested, testedString, testedDefinition);
+        }
+    }
+
+    /**
+     * An immutable list of the strings a value is known to differ from, shared between the values that extend it.
+     */
+    private static class Exclusion {
+        private final String string;
+        private final Exclusion next;
+
+        Exclusion(String string, Exclusion next) {
+            this.string = string;
+            this.next = next;
+        }
+
+        static boolean contains(Exclusion exclusion, String string) {
+            for (; exclusion != null; exclusion = exclusion.next)
+                if (exclusion.string.equals(string)) return true;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package org.IntentSymbolicExecution;
+
+import org.IntentSymbolicExecution.ControlFlowGraph.GraphNode;
+
+import java.util.*;
+
+/**
+ * Frozen, index based view of a {@link ControlFlowGraph} used for path enumeration.
+ * <p>
+ * Nodes are identified by int ids (their position in the vertex set), successors are stored in compressed arrays and
+ * node properties (leaf, Intent related) in {@link BitSet}s, so the enumeration never hashes a {@link GraphNode}.
+ * The graph is immutable: {@link #withSuccessors(int[][])} and {@link #withCopies(int[], int[][])} return new views
+ * sharing the nodes.
+ */
+public class PathGraph {
+
+    private final GraphNode[] nodes;
+
+    /**
+     * Successors of node {@code n} are {@code successors[successorStart[n]]} to {@code successors[successorStart[n + 1] - 1]}.
+     */
+    private final int[] successorStart;
+    private final int[] successors;
+
+    private final int[] roots;
+    private final BitSet leaves;
+
+    /**
+     * Nodes related to the Intent.
+     */
+    private final BitSet relevant;
+
+    /**
+     * Subset of {@link #relevant} that are conditional branches: the node following them in a path is highlighted too.
+     */
+    private final BitSet relevantBranches;
+
+    /**
+     * Id of the key of each node: nodes with the same key (the copies of a node) have the same id.
+     */
+    private final int[] keyIds;
+
+    private PathGraph(GraphNode[] nodes, int[][] successorLists, int[] roots, BitSet leaves, BitSet relevant,
+                      BitSet relevantBranches, int[] keyIds) {
+        this.nodes = nodes;
+        this.keyIds = keyIds;
+        this.roots = roots;
+        this.leaves = leaves;
+        this.relevant = relevant;
+        this.relevantBranches = relevantBranches;
+
+        successorStart = new int[nodes.length + 1];
+        for (int node = 0; node < nodes.length; node++)
+            successorStart[node + 1] = successorStart[node] + successorLists[node].length;
+        successors = new int[successorStart[nodes.length]];
+        for (int node = 0; node < nodes.length; node++)
+            System.arraycopy(successorLists[node], 0, successors, successorStart[node], successorLists[node].length);
+    }
+
+    /**
+     * Freezes a control flow graph.
+     *
+     * @param graph        The graph.
+     * @param relevantKeys The keys of the Intent-related nodes.
+     * @return The index based view of the graph.
+     */
+    public static PathGraph of(ControlFlowGraph graph, Set<String> relevantKeys) {
+        GraphNode[] nodes = graph.vertexSet().toArray(new GraphNode[0]);
+        Map<GraphNode, Integer> index = new IdentityHashMap<>();
+        for (int i = 0; i < nodes.length; i++)
+            index.put(nodes[i], i);
+
+        int[][] successorLists = new int[nodes.length][];
+        List<Integer> roots = new ArrayList<>();
+        BitSet leaves = new BitSet(nodes.length);
+        BitSet relevant = new BitSet(nodes.length);
+        BitSet relevantBranches = new BitSet(nodes.length);
+        int[] keyIds = new int[nodes.length];
+        Map<String, Integer> keys = new HashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            keyIds[i] = keys.computeIfAbsent(nodes[i].getKey(), key -> keys.size());
+            successorLists[i] = graph.getSuccessorNodes(nodes[i]).stream().mapToInt(index::get).toArray();
+            if (successorLists[i].length == 0)
+                leaves.set(i);
+            if (graph.getPredecessorEdges(nodes[i]).isEmpty())
+                roots.add(i);
+            if (relevantKeys.contains(nodes[i].getKey())) {
+                relevant.set(i);
+                if (nodes[i].getValue().startsWith("if"))
+                    relevantBranches.set(i);
+            }
+        }
+
+        return new PathGraph(nodes, successorLists, roots.stream().mapToInt(Integer::intValue).toArray(),
+                leaves, relevant, relevantBranches, keyIds);
+    }
+
+    /**
+     * Returns a view of this graph with different successors. Roots, leaves and relevance are kept.
+     *
+     * @param successorLists The successors of each node.
+     * @return The new view.
+     */
+    public PathGraph withSuccessors(int[][] successorLists) {
+        return new PathGraph(nodes, successorLists, roots, leaves, relevant, relevantBranches, keyIds);
+    }
+
+    /**
+     * Returns a graph made of copies of the nodes of this graph, as built by {@link LoopUnroller}. A copy shares the
+     * {@link GraphNode}, the leaf status and the relevance of its original; the roots are kept.
+     *
+     * @param originals      For each node of the new graph, the id of the node of this graph it copies. Roots must
+     *                       keep their id.
+     * @param successorLists The successors of each node of the new graph.
+     * @return The new graph.
+     */
+    public PathGraph withCopies(int[] originals, int[][] successorLists) {
+        GraphNode[] copies = new GraphNode[originals.length];
+        BitSet copiedLeaves = new BitSet(originals.length);
+        BitSet copiedRelevant = new BitSet(originals.length);
+        BitSet copiedRelevantBranches = new BitSet(originals.length);
+        int[] copiedKeyIds = new int[originals.length];
+        for (int i = 0; i < originals.length; i++) {
+            copies[i] = nodes[originals[i]];
+            copiedKeyIds[i] = keyIds[originals[i]];
+            copiedLeaves.set(i, leaves.get(originals[i]));
+            copiedRelevant.set(i, relevant.get(originals[i]));
+            copiedRelevantBranches.set(i, relevantBranches.get(originals[i]));
+        }
+        return new PathGraph(copies, successorLists, roots, copiedLeaves, copiedRelevant, copiedRelevantBranches,
+                copiedKeyIds);
+    }
+
+    /**
+     * @return The number of nodes.
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * @param node A node id.
+     * @return The corresponding {@link GraphNode}.
+     */
+    public GraphNode node(int node) {
+        return nodes[node];
+    }
+
+    /**
+     * @return The ids of the nodes without predecessors, where paths start. The array must not be modified.
+     */
+    public int[] roots() {
+        return roots;
+    }
+
+    /**
+     * @param node A node id.
+     * @return true if the node has no successors in the original graph, i.e. paths end there.
+     */
+    public boolean isLeaf(int node) {
+        return leaves.get(node);
+    }
+
+    /**
+     * @param node A node id.
+     * @return The number of successors of the node.
+     */
+    public int successorCount(int node) {
+        return successorStart[node + 1] - successorStart[node];
+    }
+
+    /**
+     * @param node  A node id.
+     * @param index The position of the successor, between 0 and {@link #successorCount(int)} excluded.
+     * @return The id of the successor.
+     */
+    public int successor(int node, int index) {
+        return successors[successorStart[node] + index];
+    }
+
+    /**
+     * @param node A node id.
+     * @return A copy of the successors of the node.
+     */
+    public int[] successors(int node) {
+        return Arrays.copyOfRange(successors, successorStart[node], successorStart[node + 1]);
+    }
+
+    /**
+     * The outcome of the edges of a branch {@code if ... goto target} is known when it has two successors and exactly
+     * one of them is the target, as in the branch labels of the path files.
+     *
+     * @param node A node id.
+     * @return The successor reached when the condition of the branch holds, or -1 if unknown.
+     */
+    public int trueSuccessor(int node) {
+        String line = nodes[node].getValue();
+        if (!line.startsWith("if") || !line.contains(" goto ") || successorCount(node) != 2) return -1;
+        String target = line.split(" goto ")[1];
+        int trueSuccessor = -1;
+        for (int i = 0; i < 2; i++) {
+            int successor = successor(node, i);
+            if (!nodes[successor].getValue().equals(target)) continue;
+            if (trueSuccessor >= 0) return -1;
+            trueSuccessor = successor;
+        }
+        return trueSuccessor;
+    }
+
+    /**
+     * @param node A node id.
+     * @return true if the node is related to the Intent.
+     */
+    public boolean isRelevant(int node) {
+        return relevant.get(node);
+    }
+
+    /**
+     * @param node A node id.
+     * @return true if the node is an Intent-related conditional branch.
+     */
+    public boolean isRelevantBranch(int node) {
+        return relevantBranches.get(node);
+    }
+
+    /**
+     * @param node A node id.
+     * @return The id of the key of the node, shared by the nodes with the same key.
+     */
+    public int keyId(int node) {
+        return keyIds[node];
+    }
+
+    /**
+     * Projects the Intent relevance onto a path, as {@link #highlightedKeys(int[], int)}, with key ids.
+     *
+     * @param path        The node ids of the path.
+     * @param length      The number of nodes of the path.
+     * @param projection  Receives the key ids of the highlighted nodes, in path order. Must hold {@code length} ids.
+     * @return The number of highlighted nodes.
+     */
+    public int highlightedKeyIds(int[] path, int length, int[] projection) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            int node = path[i];
+            if (relevant.get(node) || (i > 0 && relevantBranches.get(path[i - 1])))
+                projection[count++] = keyIds[node];
+        }
+        return count;
+    }
+
+    /**
+     * Projects the Intent relevance onto a path.
+     * <p>
+     * A node of the path is highlighted if it is Intent related, or if it directly follows an Intent related
+     * conditional branch (the branch outcome).
+     *
+     * @param path   The node ids of the path.
+     * @param length The number of nodes of the path.
+     * @return The keys of the highlighted nodes, in path order.
+     */
+    public List<String> highlightedKeys(int[] path, int length) {
+        List<String> highlighted = new ArrayList<>();
+        boolean addNextNode = false;
+
+        for (int i = 0; i < length; i++) {
+            int node = path[i];
+            boolean isRelevant = relevant.get(node);
+            if (isRelevant || addNextNode)
+                highlighted.add(nodes[node].getKey());
+            addNextNode = isRelevant && relevantBranches.get(node);
+        }
+
+        return highlighted;
+    }
+
+    /**
+     * @param path   The node ids of a path.
+     * @param length The number of nodes of the path.
+     * @return The nodes of the path.
+     */
+    public List<GraphNode> toNodes(int[] path, int length) {
+        List<GraphNode> nodeList = new ArrayList<>(length);
+        for (int i = 0; i < length; i++)
+            nodeList.add(nodes[path[i]]);
+        return nodeList;
+    }
+}
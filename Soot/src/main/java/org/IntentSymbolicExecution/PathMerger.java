@@ -0,0 +1,177 @@
+package org.IntentSymbolicExecution;
+
+import org.IntentSymbolicExecution.PathConstraints.Statement;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Merges the paths of a {@link PathGraph} that constrain the Intent in the same way.
+ * <p>
+ * The constraint set of a path is made of the conditions of its Intent-related branches with a known outcome, written
+ * as SMT-LIB2 terms over the values read from the Intent rather than over versioned variables: each variable stands
+ * for the term of its last assignment on the path, an extra for {@code |extra:name|} whatever variable it was read
+ * into, and a value that is not understood for an unknown. Unknowns are then numbered in the order of the sorted
+ * conditions, and the conditions are sorted and deduplicated. Two paths with the same set need the same Intent, so
+ * only the first one is written; the others only add to its multiplicity.
+ */
+public class PathMerger {
+
+    /**
+     * Maximum number of path ids listed for a merged path.
+     */
+    private static final int REPORTED_PATHS = 10;
+
+    /**
+     * Maximum length of the term of a variable: longer ones, built by long chains of operations, become unknowns.
+     */
+    private static final int MAX_TERM_LENGTH = 1000;
+
+    private static final Pattern unknownPattern = Pattern.compile("\\|\\?(\\d+)\\|");
+
+    private final PathConstraints constraints;
+    private final SmtLibTerms smtLibTerms;
+
+    /**
+     * Term of each variable on the path being read.
+     */
+    private final String[] terms;
+    private int unknowns;
+
+    private final Map<String, MergedPath> mergedPaths = new LinkedHashMap<>();
+    private long pathCount = 0;
+
+    /**
+     * @param constraints The constraints of the graph the paths come from.
+     */
+    public PathMerger(PathConstraints constraints) {
+        this.constraints = constraints;
+        this.terms = new String[constraints.variableCount()];
+        this.smtLibTerms = new SmtLibTerms(constraints, variable -> terms[variable]);
+    }
+
+    /**
+     * Adds a path.
+     *
+     * @param path       The node ids of the path.
+     * @param length     The number of nodes of the path.
+     * @param pathNumber The number the path is written with if it is kept.
+     * @return true if the path has a new constraint set and should be written, false if it was merged.
+     */
+    public boolean add(int[] path, int length, int pathNumber) {
+        pathCount++;
+        String constraintSet = constraintSet(path, length);
+        MergedPath mergedPath = mergedPaths.get(constraintSet);
+        if (mergedPath != null) {
+            mergedPath.add(pathCount);
+            return false;
+        }
+        mergedPaths.put(constraintSet, new MergedPath(pathNumber, pathCount));
+        return true;
+    }
+
+    /**
+     * @return The number of distinct constraint sets.
+     */
+    public int size() {
+        return mergedPaths.size();
+    }
+
+    /**
+     * @return The number of paths added.
+     */
+    public long pathCount() {
+        return pathCount;
+    }
+
+    /**
+     * Writes, for each written path, the number of paths merged into it, the ids these paths would have without
+     * merging, and its constraint set.
+     *
+     * @param writer The output.
+     */
+    public void writeReport(Writer writer) throws IOException {
+        for (Map.Entry<String, MergedPath> entry : mergedPaths.entrySet()) {
+            MergedPath mergedPath = entry.getValue();
+            StringJoiner ids = new StringJoiner(", ");
+            for (long id : mergedPath.ids)
+                ids.add(Long.toString(id));
+            if (mergedPath.multiplicity > mergedPath.ids.size())
+                ids.add("...");
+            writer.write(String.format("path_%d: %d paths (%s): %s\n", mergedPath.pathNumber, mergedPath.multiplicity,
+                    ids, entry.getKey().isEmpty() ? "true" : entry.getKey()));
+        }
+    }
+
+    /**
+     * @return The canonical constraint set of a path: its sorted conditions, separated by spaces.
+     */
+    private String constraintSet(int[] path, int length) {
+        for (int variable = 0; variable < terms.length; variable++)
+            terms[variable] = constraints.name(variable);
+        unknowns = 0;
+
+        TreeSet<String> conditions = new TreeSet<>();
+        for (int i = 0; i < length; i++) {
+            if (i > 0 && constraints.trueSuccessor(path[i - 1]) >= 0) {
+                String condition = smtLibTerms.condition(constraints.statement(path[i - 1]), path[i] == constraints.trueSuccessor(path[i - 1]));
+                if (condition != null)
+                    conditions.add(condition);
+            }
+
+            Statement statement = constraints.statement(path[i]);
+            if (statement.getAssigned() < 0) continue;
+            String term = statement.getExtraName() != null ? String.format("|extra:%s|", statement.getExtraName().replace("|", ""))
+                    : smtLibTerms.assignedValue(statement);
+            if (term == null || term.length() > MAX_TERM_LENGTH)
+                term = String.format("|?%d|", unknowns++);
+            terms[statement.getAssigned()] = term;
+        }
+        return canonicalize(conditions);
+    }
+
+    /**
+     * Numbers the unknowns in order of first appearance in the conditions sorted without them, and sorts the result.
+     */
+    private static String canonicalize(Collection<String> conditions) {
+        List<String> ordered = new ArrayList<>(conditions);
+        ordered.sort(Comparator.comparing((String condition) -> unknownPattern.matcher(condition).replaceAll("|?|"))
+                .thenComparing(Comparator.naturalOrder()));
+
+        Map<String, String> renaming = new HashMap<>();
+        TreeSet<String> canonical = new TreeSet<>();
+        for (String condition : ordered) {
+            Matcher matcher = unknownPattern.matcher(condition);
+            StringBuffer renamed = new StringBuffer();
+            while (matcher.find())
+                matcher.appendReplacement(renamed, Matcher.quoteReplacement(
+                        renaming.computeIfAbsent(matcher.group(), unknown -> "|?" + renaming.size() + "|")));
+            matcher.appendTail(renamed);
+            canonical.add(renamed.toString());
+        }
+        return String.join(" ", canonical);
+    }
+
+    /**
+     * A written path and the paths merged into it.
+     */
+    private static class MergedPath {
+        private final int pathNumber;
+        private final List<Long> ids = new ArrayList<>();
+        private long multiplicity = 0;
+
+        MergedPath(int pathNumber, long id) {
+            this.pathNumber = pathNumber;
+            add(id);
+        }
+
+        void add(long id) {
+            multiplicity++;
+            if (ids.size() < REPORTED_PATHS)
+                ids.add(id);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.IntentSymbolicExecution;
+
+/**
+ * A set of paths of a {@link PathGraph}, stored as their branch decisions in a {@link SequenceSet}.
+ * <p>
+ * A path is encoded as the index of its root followed, for every node with more than one successor, by the index of
+ * the successor it takes. Since a node appears at most once in a path, the decisions determine the path. Paths that
+ * share their first decisions share their prefix in the diagram and paths that end with the same decisions share
+ * their suffix, so a set of paths crossing independent branches is stored in space linear in the number of branches.
+ * Counting and iterating work on the diagram, not on explicit paths.
+ */
+public class PathSet {
+
+    private final PathGraph graph;
+    private final SequenceSet decisions = new SequenceSet();
+    private final int[] buffer;
+
+    /**
+     * @param graph The graph the paths come from.
+     */
+    public PathSet(PathGraph graph) {
+        this.graph = graph;
+        this.buffer = new int[graph.size() + 1];
+    }
+
+    /**
+     * Adds a path.
+     *
+     * @param path   The node ids of the path, from a root to a leaf.
+     * @param length The number of nodes of the path.
+     * @return true if the path was not in the set.
+     */
+    public boolean add(int[] path, int length) {
+        return decisions.add(buffer, encode(path, length));
+    }
+
+    /**
+     * @param path   The node ids of a path, from a root to a leaf.
+     * @param length The number of nodes of the path.
+     * @return true if the path is in the set.
+     */
+    public boolean contains(int[] path, int length) {
+        return decisions.contains(buffer, encode(path, length));
+    }
+
+    /**
+     * @return The number of paths in the set.
+     */
+    public long size() {
+        return decisions.size();
+    }
+
+    /**
+     * Receives the paths of a set.
+     */
+    public interface PathConsumer {
+        /**
+         * @param path   The node ids of the path. The buffer is reused for the next path.
+         * @param length The number of nodes of the path.
+         */
+        void accept(int[] path, int length);
+    }
+
+    /**
+     * Visits the paths in depth-first order, the order of {@link PathEnumerator}.
+     *
+     * @param consumer Receives each path.
+     */
+    public void forEach(PathConsumer consumer) {
+        int[] path = new int[graph.size() + 1];
+        decisions.forEach((sequence, length) -> consumer.accept(path, decode(sequence, path)));
+    }
+
+    /**
+     * Writes the decisions of a path in {@link #buffer}.
+     *
+     * @return The number of decisions.
+     */
+    private int encode(int[] path, int length) {
+        int count = 0;
+        buffer[count++] = indexOf(graph.roots(), path[0]);
+        for (int i = 0; i + 1 < length; i++) {
+            int node = path[i];
+            if (graph.successorCount(node) < 2) continue;
+            for (int s = 0; s < graph.successorCount(node); s++)
+                if (graph.successor(node, s) == path[i + 1]) {
+                    buffer[count++] = s;
+                    break;
+                }
+        }
+        return count;
+    }
+
+    /**
+     * Follows decisions from a root to a leaf.
+     *
+     * @return The number of nodes of the path.
+     */
+    private int decode(int[] sequence, int[] path) {
+        int node = graph.roots()[sequence[0]];
+        int next = 1;
+        int length = 0;
+        path[length++] = node;
+        while (!graph.isLeaf(node)) {
+            node = graph.successorCount(node) == 1 ? graph.successor(node, 0) : graph.successor(node, sequence[next++]);
+            path[length++] = node;
+        }
+        return length;
+    }
+
+    private static int indexOf(int[] array, int value) {
+        for (int i = 0; i < array.length; i++)
+            if (array[i] == value) return i;
+        return -1;
+    }
+}
@@ -0,0 +1,62 @@
+package org.IntentSymbolicExecution;
+
+/**
+ * An SMT solver following the current path of a depth-first search incrementally.
+ * <p>
+ * The constraints of a prefix are asserted once and shared by all the paths extending it: entering an Intent-related
+ * branch pushes a solver frame with the condition of the edge taken, leaving it pops the frame. A prefix whose
+ * constraints are unsatisfiable is rejected as soon as it is entered, with all the paths below it.
+ * <p>
+ * The implementation depends on the Z3 Java bindings, which are only on the classpath of the build with the
+ * {@code smt} profile ({@code mvn -Psmt package}), so it is loaded by name.
+ */
+public interface PathSolver extends PrefixCheck, AutoCloseable {
+
+    /**
+     * Name of the class implementing the solver with Z3.
+     */
+    String Z3_SOLVER_CLASS = "org.IntentSymbolicExecution.smt.Z3PathSolver";
+
+    /**
+     * Solves the constraints of the current path.
+     *
+     * @return The values of the Intent extras read on the path, as {@code name (type) : value} joined by
+     * {@code " | "} like the results of the Z3 solver script, or null if the path has no solution.
+     */
+    String model();
+
+    /**
+     * Releases the solver.
+     */
+    @Override
+    void close();
+
+    /**
+     * @return true if the Z3 support was built.
+     */
+    static boolean isZ3Available() {
+        try {
+            Class.forName(Z3_SOLVER_CLASS);
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates the Z3 solver of the paths of a graph.
+     *
+     * @param graph The graph whose paths are solved.
+     * @return The solver.
+     * @throws IllegalStateException If the Z3 support was not built.
+     */
+    static PathSolver z3(PathGraph graph) {
+        try {
+            return (PathSolver) Class.forName(Z3_SOLVER_CLASS).getConstructor(PathGraph.class).newInstance(graph);
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new IllegalStateException("The Z3 solver is not available: build with the smt profile (mvn -Psmt package)", e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The Z3 solver could not be created: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.IntentSymbolicExecution;
+
+import org.IntentSymbolicExecution.ControlFlowGraph.GraphNode;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes a set of paths as a single prefix tree in DOT, instead of one subgraph per path.
+ * <p>
+ * Each path is compared with the previous one written: the nodes of their common prefix are already in the file, so
+ * only the remaining nodes are written, each as the edge from its parent followed by the node itself. A path is
+ * identified by its leaf, which carries a {@code path=N} attribute. Since paths are written in depth-first order,
+ * each prefix shared by several paths is written once, and the file is a pre-order walk of the tree: a reader can
+ * rebuild every path with a stack, without loading the whole file.
+ * <p>
+ * The renamed label, the highlighting and the branch outcome of a node only depend on the nodes before it, so they
+ * are the same for every path sharing the prefix.
+ */
+public class PathTreeWriter {
+
+    private final Writer writer;
+    private final PathGraph graph;
+    private final VariableVersioning variableVersioning;
+
+    /**
+     * The previous path written, and the tree node id of each of its nodes.
+     */
+    private final int[] previousPath;
+    private final int[] treeIds;
+    private int previousLength = 0;
+    private int nextTreeId = 1;
+
+    /**
+     * @param writer             The output writer, positioned inside the {@code digraph}.
+     * @param graph              The graph the paths come from.
+     * @param variableVersioning The variable versions of the graph.
+     */
+    public PathTreeWriter(Writer writer, PathGraph graph, VariableVersioning variableVersioning) {
+        this.writer = writer;
+        this.graph = graph;
+        this.variableVersioning = variableVersioning;
+        this.previousPath = new int[graph.size() + 1];
+        this.treeIds = new int[graph.size() + 1];
+    }
+
+    /**
+     * Writes the nodes of a path that are not shared with the previous path.
+     *
+     * @param pathNumber The number of the path, written on its leaf.
+     * @param path       The node ids of the path.
+     * @param length     The number of nodes of the path.
+     */
+    public void write(int pathNumber, int[] path, int length) throws IOException {
+        int shared = 0;
+        while (shared < length && shared < previousLength && path[shared] == previousPath[shared])
+            shared++;
+        if (shared == length) return; // Same path.
+
+        List<GraphNode> renamedPath = variableVersioning.rename(path, length);
+        for (int i = shared; i < length; i++) {
+            int treeId = nextTreeId++;
+            treeIds[i] = treeId;
+            previousPath[i] = path[i];
+
+            if (i > 0) {
+                String originalPrevNodeLabel = graph.node(path[i - 1]).getValue();
+                String ifLabel = "";
+                if (originalPrevNodeLabel.startsWith("if") && originalPrevNodeLabel.contains(" goto ")) {
+                    String ifTrueNode = originalPrevNodeLabel.split(" goto ")[1];
+                    ifLabel = String.format(" [label=\"%s\"]", ifTrueNode.equals(graph.node(path[i]).getValue()));
+                }
+                writer.write(String.format("    n%d -> n%d%s;\n", treeIds[i - 1], treeId, ifLabel));
+            }
+
+            boolean highlighted = graph.isRelevant(path[i]) || (i > 0 && graph.isRelevantBranch(path[i - 1]));
+            String nodeLabel = renamedPath.get(i).getValue().replace("\\", "\\\\").replace("\"", "\\\"");
+            writer.write(String.format("    n%d [label=\"%s\"%s%s];\n", treeId, nodeLabel,
+                    highlighted ? ", color=blue" : "",
+                    i == length - 1 ? ", path=" + pathNumber : ""));
+        }
+        previousLength = length;
+    }
+}
@@ -0,0 +1,45 @@
+package org.IntentSymbolicExecution;
+
+/**
+ * A check following the current path of a depth-first search, node by node, that can cut the prefixes no path should
+ * extend. Nodes are entered and left in stack order.
+ */
+public interface PrefixCheck {
+
+    /**
+     * Extends the prefix with a node.
+     *
+     * @param previous The previous node of the prefix, or -1 for the first node.
+     * @param node     The node.
+     * @return false if no path should extend the prefix with the node, which is then not entered.
+     */
+    boolean enter(int previous, int node);
+
+    /**
+     * Removes the last node entered.
+     */
+    void leave();
+
+    /**
+     * @param next A check to run after this one.
+     * @return A check that runs this one, then the next one on the prefixes this one accepts.
+     */
+    default PrefixCheck andThen(PrefixCheck next) {
+        PrefixCheck first = this;
+        return new PrefixCheck() {
+            @Override
+            public boolean enter(int previous, int node) {
+                if (!first.enter(previous, node)) return false;
+                if (next.enter(previous, node)) return true;
+                first.leave();
+                return false;
+            }
+
+            @Override
+            public void leave() {
+                next.leave();
+                first.leave();
+            }
+        };
+    }
+}
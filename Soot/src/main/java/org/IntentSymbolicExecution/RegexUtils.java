@@ -36,9 +36,29 @@ public class RegexUtils {
     private static final String assignationRegex = "^(?<assignation>(?:\\s*[\\w\\$]+\\s*_this\\.\\w+|[\\w\\$]+))\\s*(?<type>\\([\\w\\.\\$]+\\))?\\s*=";
     public static final Pattern assignationPattern = Pattern.compile(assignationRegex);
 
-    public static final String variableRenamingRegex = "(?<!\\w)(\\$?)%s(?![\\d_]|\\)this)";
+    /**
+     * A regular expression matching a single Jimple identifier (locals such as {@code $r1}, {@code i0} or {@code r0_this_name}).
+     */
+    public static final Pattern localTokenPattern = Pattern.compile("[\\w\\$]+");
+
+    /**
+     * A regular expression matching a double-quoted string literal, used to ignore literal content when collecting locals.
+     */
+    public static final Pattern stringLiteralPattern = Pattern.compile("\"(?:[^\"\\\\]|\\\\.)*\"");
+
+    // regex for: specialinvoke $r9.<java.math.BigInteger: void <init>(...)>(...) or the relabelled (java.util.List) $r9.add(...)
+    private static final String receiverCallRegex = "^(?:\\w+invoke |\\([\\w.\\$\\[\\]]+\\) )(?<receiver>\\$?\\w+)\\.(?:<|\\w+\\()";
+    public static final Pattern receiverCallPattern = Pattern.compile(receiverCallRegex);
+
+    // regex for: if $r2 == null goto ... or if b4==3 goto ...
+    private static final String conditionRegex = "^if (?<left>\\S+?)\\s*(?<operator>==|!=|<=|>=|<|>)\\s*(?<right>.+?) goto ";
+    public static final Pattern conditionPattern = Pattern.compile(conditionRegex);
 
-    public static final Pattern casePattern = Pattern.compile("(?<switchCase>(?<case>case (?<value>.*?)|default): (?<goto>.*?(?<equals>\\\".*?\\\")?));");
+    // regex for the relabelled String.equals: $z0 = $r2 == "*"
+    private static final String stringComparisonRegex = "^(?<left>\\S+) == (?<right>.+)$";
+    public static final Pattern stringComparisonPattern = Pattern.compile(stringComparisonRegex);
+
+    public static final String variableRenamingRegex = "(?<!\\w)(\\$?)%s(?![\\d_]|\\)this)";
 
     private static final String globalVariablesRegex = "^(?<variable>\\S+)\\s*=\\s*<(?<package>[^:>]+):\\s+(?<type>\\S+)\\s+(?<varname>[^>]+)>$";
     public static final Pattern globalVariablesPattern = Pattern.compile(globalVariablesRegex);
@@ -0,0 +1,426 @@
+package org.IntentSymbolicExecution;
+
+import java.util.*;
+
+/**
+ * A set of int sequences stored as a reduced, zero-suppressed decision diagram.
+ * <p>
+ * A node stands for a set of sequences: those starting with its symbol and continuing with a sequence of its child,
+ * plus the sequences of its sibling, whose symbols are larger. The terminal {@link #EMPTY} is the empty set and
+ * {@link #END} the set holding only the empty sequence. Nodes are hash-consed, so equal subsets are stored once and
+ * both common prefixes and common suffixes are shared: a set of sequences built from independent choices takes space
+ * linear in the number of choices, not in the number of sequences.
+ * <p>
+ * Membership is exact: unlike a set of hashcodes, two different sequences never collide.
+ */
+public class SequenceSet {
+
+    private static final int EMPTY = 0;
+    private static final int END = 1;
+
+    /**
+     * Minimum number of nodes before unreachable nodes are collected.
+     */
+    private static final int COLLECTION_THRESHOLD = 1 << 16;
+
+    private int[] symbols = new int[1024];
+    private int[] children = new int[1024];
+    private int[] siblings = new int[1024];
+    private int nodeCount = 2;
+
+    /**
+     * Open addressing table of the nodes, by (symbol, child, sibling). 0 marks a free slot.
+     */
+    private int[] uniqueTable = new int[2048];
+
+    /**
+     * Open addressing table of the unions computed by the current {@link #union(int, int)}, by (a, b). A slot is only
+     * used if its generation is the current one, so the table is cleared by starting a new generation.
+     */
+    private long[] unionKeys = new long[1024];
+    private int[] unionResults = new int[1024];
+    private int[] unionGenerations = new int[1024];
+    private int unionGeneration = 1;
+    private int unionCacheSize = 0;
+
+    /**
+     * Frames of the union in progress: its operands, the next step and the result of its first operation.
+     */
+    private int[] frameA = new int[64];
+    private int[] frameB = new int[64];
+    private int[] frameStep = new int[64];
+    private int[] frameChild = new int[64];
+
+    private int root = EMPTY;
+
+    /**
+     * Number of nodes after the last collection: the next one runs when the diagram has doubled.
+     */
+    private int liveNodes = 0;
+
+    /**
+     * Adds a sequence.
+     *
+     * @param sequence The symbols, all non-negative.
+     * @param length   The number of symbols.
+     * @return true if the sequence was not in the set.
+     */
+    public boolean add(int[] sequence, int length) {
+        if (contains(sequence, length)) return false;
+        root = union(root, sequence(sequence, length));
+        if (nodeCount > COLLECTION_THRESHOLD && nodeCount > 2 * liveNodes)
+            collect();
+        return true;
+    }
+
+    /**
+     * @param sequence The symbols.
+     * @param length   The number of symbols.
+     * @return true if the sequence is in the set.
+     */
+    public boolean contains(int[] sequence, int length) {
+        int node = root;
+        for (int i = 0; i < length; i++) {
+            while (node > END && symbols[node] < sequence[i])
+                node = siblings[node];
+            if (node <= END || symbols[node] != sequence[i]) return false;
+            node = children[node];
+        }
+        while (node > END)
+            node = siblings[node];
+        return node == END;
+    }
+
+    /**
+     * @return The number of sequences in the set, saturated at {@link Long#MAX_VALUE}.
+     */
+    public long size() {
+        return count(root, new long[nodeCount]);
+    }
+
+    /**
+     * @return The number of nodes reachable in the diagram, terminals included.
+     */
+    public int nodeCount() {
+        return reachable().cardinality() + 2;
+    }
+
+    /**
+     * Receives the sequences of a set.
+     */
+    public interface SequenceConsumer {
+        /**
+         * @param sequence The symbols. The buffer is reused for the next sequence.
+         * @param length   The number of symbols.
+         */
+        void accept(int[] sequence, int length);
+    }
+
+    /**
+     * Visits the sequences in increasing lexicographic order.
+     *
+     * @param consumer Receives each sequence.
+     */
+    public void forEach(SequenceConsumer consumer) {
+        forEach(root, consumer);
+    }
+
+    private void forEach(int set, SequenceConsumer consumer) {
+        int[] stack = new int[16];
+        int[] sequence = new int[16];
+        int depth = 0;
+        stack[0] = set;
+
+        while (depth >= 0) {
+            int node = stack[depth];
+            if (node > END) {
+                if (depth + 1 >= stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                    sequence = Arrays.copyOf(sequence, sequence.length * 2);
+                }
+                sequence[depth] = symbols[node];
+                stack[++depth] = children[node];
+                continue;
+            }
+            if (node == END)
+                consumer.accept(sequence, depth);
+            // Backtrack to the sibling of the parent.
+            if (--depth >= 0)
+                stack[depth] = siblings[stack[depth]];
+        }
+    }
+
+    /**
+     * @return The diagram of the single given sequence.
+     */
+    private int sequence(int[] sequence, int length) {
+        int node = END;
+        for (int i = length - 1; i >= 0; i--)
+            node = node(sequence[i], node, EMPTY);
+        return node;
+    }
+
+    /**
+     * Returns the reduced node for the given symbol, child and sibling: the sibling itself when the child is empty
+     * (zero suppression), an existing equal node otherwise if there is one.
+     */
+    private int node(int symbol, int child, int sibling) {
+        if (child == EMPTY) return sibling;
+
+        int mask = uniqueTable.length - 1;
+        int slot = hash(symbol, child, sibling) & mask;
+        while (uniqueTable[slot] != 0) {
+            int node = uniqueTable[slot];
+            if (symbols[node] == symbol && children[node] == child && siblings[node] == sibling)
+                return node;
+            slot = (slot + 1) & mask;
+        }
+
+        if (nodeCount == symbols.length) {
+            symbols = Arrays.copyOf(symbols, nodeCount * 2);
+            children = Arrays.copyOf(children, nodeCount * 2);
+            siblings = Arrays.copyOf(siblings, nodeCount * 2);
+        }
+        int node = nodeCount++;
+        symbols[node] = symbol;
+        children[node] = child;
+        siblings[node] = sibling;
+        uniqueTable[slot] = node;
+        if (nodeCount * 2 > uniqueTable.length)
+            rehash();
+        return node;
+    }
+
+    /**
+     * @return The union of two sets.
+     */
+    private int union(int a, int b) {
+        clearUnionCache();
+        return unionOf(a, b);
+    }
+
+    /**
+     * Computes a union with an explicit stack of frames, since the recursion would be as deep as the sequences plus
+     * the sibling chains. Each frame waits for the union of the children or of the siblings, then for the other one
+     * when both symbols are equal.
+     */
+    private int unionOf(int a, int b) {
+        int depth = 0;
+        pushFrame(depth++, a, b);
+        int result = EMPTY;
+
+        while (depth > 0) {
+            int frame = depth - 1;
+            a = frameA[frame];
+            b = frameB[frame];
+
+            if (frameStep[frame] == 0) {
+                if (a == EMPTY || a == b) {
+                    result = b;
+                    depth--;
+                    continue;
+                }
+                if (b == EMPTY) {
+                    result = a;
+                    depth--;
+                    continue;
+                }
+                if (a > b) {
+                    frameA[frame] = b;
+                    frameB[frame] = a;
+                    a = frameA[frame];
+                    b = frameB[frame];
+                }
+                int cached = cachedUnion(a, b);
+                if (cached >= 0) {
+                    result = cached;
+                    depth--;
+                    continue;
+                }
+
+                frameStep[frame] = 1;
+                if (a == END) // b is a node: the empty sequence goes at the end of its sibling chain.
+                    pushFrame(depth++, siblings[b], END);
+                else if (symbols[a] < symbols[b])
+                    pushFrame(depth++, siblings[a], b);
+                else if (symbols[a] > symbols[b])
+                    pushFrame(depth++, a, siblings[b]);
+                else
+                    pushFrame(depth++, children[a], children[b]);
+                continue;
+            }
+
+            if (frameStep[frame] == 1) {
+                if (a == END || symbols[a] > symbols[b]) {
+                    result = node(symbols[b], children[b], result);
+                } else if (symbols[a] < symbols[b]) {
+                    result = node(symbols[a], children[a], result);
+                } else {
+                    frameChild[frame] = result;
+                    frameStep[frame] = 2;
+                    pushFrame(depth++, siblings[a], siblings[b]);
+                    continue;
+                }
+            } else {
+                result = node(symbols[a], frameChild[frame], result);
+            }
+            cacheUnion(a, b, result);
+            depth--;
+        }
+        return result;
+    }
+
+    private void pushFrame(int frame, int a, int b) {
+        if (frame == frameA.length) {
+            frameA = Arrays.copyOf(frameA, frame * 2);
+            frameB = Arrays.copyOf(frameB, frame * 2);
+            frameStep = Arrays.copyOf(frameStep, frame * 2);
+            frameChild = Arrays.copyOf(frameChild, frame * 2);
+        }
+        frameA[frame] = a;
+        frameB[frame] = b;
+        frameStep[frame] = 0;
+    }
+
+    private void clearUnionCache() {
+        if (++unionGeneration == 0) {
+            Arrays.fill(unionGenerations, 0);
+            unionGeneration = 1;
+        }
+        unionCacheSize = 0;
+    }
+
+    /**
+     * @return The cached union of a and b, or -1.
+     */
+    private int cachedUnion(int a, int b) {
+        long key = ((long) a << 32) | b;
+        int mask = unionKeys.length - 1;
+        for (int slot = hash(a, b, 0) & mask; unionGenerations[slot] == unionGeneration; slot = (slot + 1) & mask)
+            if (unionKeys[slot] == key)
+                return unionResults[slot];
+        return -1;
+    }
+
+    private void cacheUnion(int a, int b, int result) {
+        if (2 * (unionCacheSize + 1) > unionKeys.length)
+            growUnionCache();
+        long key = ((long) a << 32) | b;
+        int mask = unionKeys.length - 1;
+        int slot = hash(a, b, 0) & mask;
+        while (unionGenerations[slot] == unionGeneration)
+            slot = (slot + 1) & mask;
+        unionKeys[slot] = key;
+        unionResults[slot] = result;
+        unionGenerations[slot] = unionGeneration;
+        unionCacheSize++;
+    }
+
+    private void growUnionCache() {
+        long[] keys = unionKeys;
+        int[] results = unionResults;
+        int[] generations = unionGenerations;
+        int generation = unionGeneration;
+        unionKeys = new long[keys.length * 2];
+        unionResults = new int[keys.length * 2];
+        unionGenerations = new int[keys.length * 2];
+        unionGeneration = 1;
+        unionCacheSize = 0;
+        for (int slot = 0; slot < keys.length; slot++)
+            if (generations[slot] == generation)
+                cacheUnion((int) (keys[slot] >>> 32), (int) keys[slot], results[slot]);
+    }
+
+    /**
+     * Counts the sequences of a set, from the leaves up, with an explicit stack.
+     */
+    private long count(int set, long[] memo) {
+        if (set <= END) return set;
+        int[] stack = new int[64];
+        int depth = 0;
+        stack[depth++] = set;
+
+        while (depth > 0) {
+            int node = stack[depth - 1];
+            if (memo[node] > 0) {
+                depth--;
+                continue;
+            }
+            int child = children[node];
+            int sibling = siblings[node];
+            int next = child > END && memo[child] == 0 ? child : sibling > END && memo[sibling] == 0 ? sibling : -1;
+            if (next >= 0) {
+                if (depth == stack.length)
+                    stack = Arrays.copyOf(stack, depth * 2);
+                stack[depth++] = next;
+                continue;
+            }
+            long count = (child <= END ? child : memo[child]) + (sibling <= END ? sibling : memo[sibling]);
+            memo[node] = count < 0 ? Long.MAX_VALUE : count;
+            depth--;
+        }
+        return memo[set];
+    }
+
+    /**
+     * Drops the nodes no longer reachable from the root, left behind by the unions. Nodes are created after their
+     * child and sibling, so renumbering the kept nodes in creation order keeps every reference valid.
+     */
+    private void collect() {
+        BitSet kept = reachable();
+        int[] newIds = new int[nodeCount];
+        int next = END + 1;
+        for (int node = kept.nextSetBit(0); node >= 0; node = kept.nextSetBit(node + 1)) {
+            newIds[node] = next;
+            symbols[next] = symbols[node];
+            children[next] = children[node] <= END ? children[node] : newIds[children[node]];
+            siblings[next] = siblings[node] <= END ? siblings[node] : newIds[siblings[node]];
+            next++;
+        }
+        root = root <= END ? root : newIds[root];
+        nodeCount = next;
+        liveNodes = next;
+        clearUnionCache();
+        Arrays.fill(uniqueTable, 0);
+        rehash();
+    }
+
+    /**
+     * @return The nodes reachable from the root, terminals excluded.
+     */
+    private BitSet reachable() {
+        BitSet reachable = new BitSet(nodeCount);
+        Deque<Integer> stack = new ArrayDeque<>();
+        if (root > END) {
+            reachable.set(root);
+            stack.push(root);
+        }
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            for (int next : new int[]{children[node], siblings[node]})
+                if (next > END && !reachable.get(next)) {
+                    reachable.set(next);
+                    stack.push(next);
+                }
+        }
+        return reachable;
+    }
+
+    private void rehash() {
+        while (uniqueTable.length < nodeCount * 2)
+            uniqueTable = new int[uniqueTable.length * 2];
+        int mask = uniqueTable.length - 1;
+        for (int node = END + 1; node < nodeCount; node++) {
+            int slot = hash(symbols[node], children[node], siblings[node]) & mask;
+            while (uniqueTable[slot] != 0)
+                slot = (slot + 1) & mask;
+            uniqueTable[slot] = node;
+        }
+    }
+
+    private static int hash(int symbol, int child, int sibling) {
+        int hash = symbol * 0x9E3779B1 + child;
+        hash = hash * 0x9E3779B1 + sibling;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,126 @@
+package org.IntentSymbolicExecution;
+
+import java.util.*;
+
+/**
+ * Restricts the paths of a {@link PathGraph} to the ones reaching a sink.
+ * <p>
+ * The sink nodes are found once from their labels with {@link Sinks#match(String)}, among the Intent-related nodes
+ * only: a sink operating on constants or on data unrelated to the Intent is not a hit. Since they are Intent related,
+ * the regions containing a sink are never collapsed by {@link GraphSlicer}. A backward search from the sink nodes
+ * then marks the nodes from which a sink is reachable. A prefix that has not hit a sink yet is then cut as soon as it enters
+ * a node from which no sink is reachable, with all the paths below it, so branches leading away from every sink are
+ * never explored.
+ */
+public class SinkFilter {
+
+    /**
+     * Sink of each node, or null.
+     */
+    private final String[] sinks;
+    private final BitSet reachesSink;
+
+    /**
+     * Finds the Intent-related sinks of a graph and the nodes reaching them.
+     *
+     * @param graph The graph.
+     * @param sinks The sinks.
+     */
+    public SinkFilter(PathGraph graph, Sinks sinks) {
+        int size = graph.size();
+        this.sinks = new String[size];
+        this.reachesSink = new BitSet(size);
+
+        int[][] predecessors = new int[size][];
+        int[] predecessorCount = new int[size];
+        for (int node = 0; node < size; node++)
+            for (int s = 0; s < graph.successorCount(node); s++)
+                predecessorCount[graph.successor(node, s)]++;
+        for (int node = 0; node < size; node++)
+            predecessors[node] = new int[predecessorCount[node]];
+        Arrays.fill(predecessorCount, 0);
+        for (int node = 0; node < size; node++)
+            for (int s = 0; s < graph.successorCount(node); s++) {
+                int successor = graph.successor(node, s);
+                predecessors[successor][predecessorCount[successor]++] = node;
+            }
+
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (int node = 0; node < size; node++) {
+            if (!graph.isRelevant(node)) continue;
+            this.sinks[node] = sinks.match(graph.node(node).getValue());
+            if (this.sinks[node] != null) {
+                reachesSink.set(node);
+                stack.push(node);
+            }
+        }
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            for (int predecessor : predecessors[node])
+                if (!reachesSink.get(predecessor)) {
+                    reachesSink.set(predecessor);
+                    stack.push(predecessor);
+                }
+        }
+    }
+
+    /**
+     * @param node A node id.
+     * @return The sink operated by the node, or null.
+     */
+    public String sink(int node) {
+        return sinks[node];
+    }
+
+    /**
+     * @param node A node id.
+     * @return true if a sink is reachable from the node, the node included.
+     */
+    public boolean reachesSink(int node) {
+        return reachesSink.get(node);
+    }
+
+    /**
+     * @param path   The node ids of a path.
+     * @param length The number of nodes of the path.
+     * @return The sinks hit by the path, in path order and without repetition.
+     */
+    public List<String> sinks(int[] path, int length) {
+        Set<String> hit = new LinkedHashSet<>();
+        for (int i = 0; i < length; i++)
+            if (sinks[path[i]] != null)
+                hit.add(sinks[path[i]]);
+        return new ArrayList<>(hit);
+    }
+
+    /**
+     * @return A new state for following a depth-first search.
+     */
+    public State newState() {
+        return new State();
+    }
+
+    /**
+     * The sinks hit by the current prefix of a depth-first search.
+     */
+    public class State implements PrefixCheck {
+        private int[] hits = new int[64];
+        private int depth = 0;
+
+        @Override
+        public boolean enter(int previous, int node) {
+            int hit = depth > 0 ? hits[depth - 1] : 0;
+            if (hit == 0 && !reachesSink.get(node))
+                return false;
+            if (depth == hits.length)
+                hits = Arrays.copyOf(hits, depth * 2);
+            hits[depth++] = hit + (sinks[node] != null ? 1 : 0);
+            return true;
+        }
+
+        @Override
+        public void leave() {
+            depth--;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.IntentSymbolicExecution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The sinks of a goal-directed analysis: the operations that paths must reach.
+ * <p>
+ * A sink is a method name ({@code startActivity}), a method of a given class ({@code android.webkit.WebView.loadUrl},
+ * {@code java.io.FileOutputStream.<init>}) or {@code []} for array indexing. A method name alone matches the calls of
+ * any class, which is what Android calls on the activity itself need, since Jimple names them after the app class.
+ * Calls are recognized both in Jimple ({@code <class: type method(...)>}) and relabelled
+ * ({@code (class) $r1.method(...)}, or {@code (class).method(...)} for static calls) form.
+ */
+public class Sinks {
+
+    /**
+     * The sinks used for {@code default}: components started with Intent data, web views, SQL, files, commands and
+     * the number parsing and array indexing that crash on unexpected extras.
+     */
+    public static final List<String> DEFAULT_SINKS = Arrays.asList(
+            "startActivity", "startActivityForResult", "startService", "sendBroadcast",
+            "android.webkit.WebView.loadUrl",
+            "execSQL", "rawQuery",
+            "java.io.FileOutputStream.<init>", "java.io.FileInputStream.<init>",
+            "java.lang.Runtime.exec",
+            "java.lang.Integer.parseInt", "java.lang.Long.parseLong", "java.lang.Double.parseDouble",
+            "[]");
+
+    public static final String ARRAY_INDEXING = "[]";
+
+    private static final Pattern invokePattern = Pattern.compile("<(?<class>[^:<>]+):\\s*\\S+\\s+(?<method>[^\\s(]+)\\(");
+    private static final Pattern relabelledCallPattern = Pattern.compile("\\((?<class>[\\w.$]+)\\)(?: \\$?\\w+)?\\.(?<method>\\w+)\\(");
+    private static final Pattern arrayIndexingPattern = Pattern.compile("[\\w$]\\[[\\w$]+]");
+
+    private final List<String> sinks;
+
+    private Sinks(List<String> sinks) {
+        this.sinks = sinks;
+    }
+
+    /**
+     * Parses a comma-separated list of sinks, where {@code default} stands for {@link #DEFAULT_SINKS}.
+     *
+     * @param list The list.
+     * @return The sinks.
+     * @throws IllegalArgumentException If the list is empty.
+     */
+    public static Sinks parse(String list) {
+        List<String> sinks = new ArrayList<>();
+        for (String sink : list.split(",")) {
+            sink = sink.trim();
+            if (sink.equals("default"))
+                sinks.addAll(DEFAULT_SINKS);
+            else if (!sink.isEmpty())
+                sinks.add(sink);
+        }
+        if (sinks.isEmpty())
+            throw new IllegalArgumentException("The list of sinks is empty");
+        return new Sinks(sinks);
+    }
+
+    /**
+     * @return The sinks, as given.
+     */
+    public List<String> getSinks() {
+        return sinks;
+    }
+
+    /**
+     * Finds the sink operated by a code line. Branches and switches are not sinks, even if their targets are printed
+     * in their label.
+     *
+     * @param codeLine The label of a node.
+     * @return The first sink of the list operated by the line, or null.
+     */
+    public String match(String codeLine) {
+        if (codeLine.startsWith("if ") || codeLine.startsWith("goto") || codeLine.startsWith("lookupswitch")
+                || codeLine.startsWith("tableswitch"))
+            return null;
+
+        List<String[]> calls = new ArrayList<>();
+        for (Pattern pattern : new Pattern[]{invokePattern, relabelledCallPattern}) {
+            Matcher matcher = pattern.matcher(codeLine);
+            while (matcher.find())
+                calls.add(new String[]{matcher.group("class"), matcher.group("method")});
+        }
+        boolean arrayIndexing = arrayIndexingPattern.matcher(codeLine.replaceAll(RegexUtils.stringLiteralPattern.pattern(), "\"\"")).find();
+
+        for (String sink : sinks) {
+            if (sink.equals(ARRAY_INDEXING)) {
+                if (arrayIndexing) return sink;
+                continue;
+            }
+            int separator = sink.lastIndexOf('.', sink.endsWith(">") ? sink.lastIndexOf('<') : sink.length());
+            String className = separator >= 0 ? sink.substring(0, separator) : null;
+            String method = sink.substring(separator + 1);
+            for (String[] call : calls)
+                if (call[1].equals(method) && (className == null || call[0].equals(className)))
+                    return sink;
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", sinks);
+    }
+}
@@ -0,0 +1,167 @@
+package org.IntentSymbolicExecution;
+
+import org.IntentSymbolicExecution.PathConstraints.Kind;
+import org.IntentSymbolicExecution.PathConstraints.Statement;
+
+import java.util.function.IntFunction;
+
+/**
+ * Builds SMT-LIB2 terms from the statements of {@link PathConstraints}.
+ * <p>
+ * The term standing for a variable is given by the caller: the constant of its current version for
+ * {@link SmtLibWriter}, its value in terms of the Intent extras for {@link PathMerger}.
+ */
+public class SmtLibTerms {
+
+    private final PathConstraints constraints;
+    private final IntFunction<String> constants;
+
+    /**
+     * @param constraints The constraints of the graph.
+     * @param constants   Gives the current term of a variable, by index.
+     */
+    public SmtLibTerms(PathConstraints constraints, IntFunction<String> constants) {
+        this.constraints = constraints;
+        this.constants = constants;
+    }
+
+    /**
+     * @param assignment A statement assigning a variable, evaluated before the variable gets its new value.
+     * @return The term of the value assigned, or null if it is not understood.
+     */
+    public String assignedValue(Statement assignment) {
+        Kind kind = constraints.kind(assignment.getAssigned());
+        String value = assignment.getValue() != null ? value(assignment.getValue(), kind) : null;
+        if (assignment.getComparedLeft() != null && kind == Kind.BOOL)
+            value = equality(assignment.getComparedLeft(), assignment.getComparedRight(), true);
+        if (assignment.getArithmetic() != null)
+            value = arithmetic(assignment);
+        return value;
+    }
+
+    /**
+     * @return The condition of a branch, or its negation, or null if it is not understood.
+     */
+    public String condition(Statement branch, boolean outcome) {
+        String condition;
+        switch (branch.getOperator()) {
+            case "==":
+            case "!=":
+                condition = equality(branch.getLeft(), branch.getRight(), branch.getOperator().equals("=="));
+                break;
+            default:
+                condition = comparison(branch.getLeft(), branch.getOperator(), branch.getRight());
+        }
+        if (condition == null) return null;
+        return outcome ? condition : String.format("(not %s)", condition);
+    }
+
+    /**
+     * @return {@code left == right} (or {@code !=}), with booleans compared to 0 and 1 as in Jimple, or null if the
+     * sides have different sorts.
+     */
+    private String equality(String left, String right, boolean equal) {
+        Kind kind = constraints.kindOf(left);
+        if (kind == null) kind = constraints.kindOf(right);
+        if (kind == null) return null;
+        String a = value(left, kind);
+        String b = value(right, kind);
+        if (a == null || b == null) return null;
+        String equality = String.format("(= %s %s)", a, b);
+        return equal ? equality : String.format("(not %s)", equality);
+    }
+
+    private String comparison(String left, String operator, String right) {
+        Kind kind = constraints.kindOf(left);
+        if (kind == null) kind = constraints.kindOf(right);
+        if (kind != Kind.INT && kind != Kind.REAL) return null;
+        String a = value(left, kind);
+        String b = value(right, kind);
+        if (a == null || b == null) return null;
+        return String.format("(%s %s %s)", operator, a, b);
+    }
+
+    private String arithmetic(Statement statement) {
+        Kind kind = constraints.kind(statement.getAssigned());
+        if (kind != Kind.INT && kind != Kind.REAL) return null;
+        String a = value(statement.getArithmeticLeft(), kind);
+        String b = value(statement.getArithmeticRight(), kind);
+        if (a == null || b == null) return null;
+        switch (statement.getArithmetic()) {
+            case "/":
+                return String.format("(%s %s %s)", kind == Kind.INT ? "div" : "/", a, b);
+            case "%":
+                return kind == Kind.INT ? String.format("(mod %s %s)", a, b) : null;
+            default:
+                return String.format("(%s %s %s)", statement.getArithmetic(), a, b);
+        }
+    }
+
+    /**
+     * @param operand A variable or a literal.
+     * @param kind    The sort expected.
+     * @return The term of the operand, or null if it does not have the sort.
+     */
+    private String value(String operand, Kind kind) {
+        Integer variable = constraints.variable(operand);
+        if (variable != null)
+            return constraints.kind(variable) == kind ? constants.apply(variable) : null;
+
+        if (operand.equals("null")) {
+            if (kind == Kind.STRING) return "\"null\"";
+            return kind == Kind.OBJECT ? "null_object" : null;
+        }
+        if (PathConstraints.isString(operand))
+            return kind == Kind.STRING ? string(PathConstraints.unquote(operand)) : null;
+        if (PathConstraints.isNumber(operand)) {
+            long number = Long.parseLong(operand.replace("L", ""));
+            switch (kind) {
+                case INT:
+                    return number < 0 ? String.format("(- %d)", -number) : Long.toString(number);
+                case REAL:
+                    return number < 0 ? String.format("(- %d.0)", -number) : number + ".0";
+                case BOOL:
+                    return number != 0 ? "true" : "false";
+                default:
+                    return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return A string literal: quotes are doubled, backslashes and non-printable characters are written as their
+     * SMT-LIB unicode escape.
+     */
+    public static String string(String text) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"')
+                literal.append("\"\"");
+            else if (c == '\\' || c < 0x20 || c > 0x7E)
+                literal.append(String.format("\\u{%x}", (int) c));
+            else
+                literal.append(c);
+        }
+        return literal.append('"').toString();
+    }
+
+    /**
+     * @return The SMT-LIB2 sort of a kind of variable.
+     */
+    public static String sort(Kind kind) {
+        switch (kind) {
+            case INT:
+                return "Int";
+            case REAL:
+                return "Real";
+            case BOOL:
+                return "Bool";
+            case STRING:
+                return "String";
+            default:
+                return "Object";
+        }
+    }
+}
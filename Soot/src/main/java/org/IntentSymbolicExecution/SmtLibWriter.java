@@ -0,0 +1,122 @@
+package org.IntentSymbolicExecution;
+
+import org.IntentSymbolicExecution.PathConstraints.Statement;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the constraints of paths as an SMT-LIB2 script, streamed path by path.
+ * <p>
+ * The script starts with the declarations shared by all the paths: the sort of the objects, {@code null_object}, and
+ * every version of every variable, which are known from the graph alone since a path assigns a variable at most once
+ * per node assigning it. Each path follows as its own block:
+ * <pre>
+ * ; path_3: action (string) r2_1 | n1 (integer) i0_1
+ * (push 1)
+ * (assert (= r2_1 "*"))
+ * ...
+ * (echo "path_3")
+ * (check-sat)
+ * (get-value (r2_1 i0_1))
+ * (pop 1)
+ * </pre>
+ * The declarations followed by any block are a complete script, so the paths can be split and solved in parallel by
+ * any solver, without parsing the DOT file. Branch outcomes come from the {@code if ... goto} labels, the extras and
+ * their types from the {@code getExtra} calls, as in the DOT files and the Z3 solver script; strings are null when
+ * equal to {@code "null"}.
+ */
+public class SmtLibWriter {
+
+    private final Writer writer;
+    private final PathConstraints constraints;
+    private final int[] versions;
+    private final SmtLibTerms terms;
+
+    /**
+     * @param writer      The output, positioned at the start of the script.
+     * @param constraints The constraints of the graph the paths come from.
+     */
+    public SmtLibWriter(Writer writer, PathConstraints constraints) {
+        this.writer = writer;
+        this.constraints = constraints;
+        this.versions = new int[constraints.variableCount()];
+        this.terms = new SmtLibTerms(constraints, this::constant);
+    }
+
+    /**
+     * Writes the declarations shared by all the paths.
+     */
+    public void writeDeclarations() throws IOException {
+        writer.write("(set-option :produce-models true)\n");
+        writer.write("(set-logic ALL)\n");
+        writer.write("(declare-sort Object 0)\n");
+        writer.write("(declare-const null_object Object)\n");
+        for (int variable = 0; variable < constraints.variableCount(); variable++) {
+            String sort = SmtLibTerms.sort(constraints.kind(variable));
+            for (int version = 0; version <= constraints.assignmentCount(variable); version++)
+                writer.write(String.format("(declare-const %s %s)\n", constraints.versionName(variable, version), sort));
+        }
+        writer.write("\n");
+    }
+
+    /**
+     * Writes the block of a path.
+     *
+     * @param pathNumber The number of the path, as in the DOT file.
+     * @param path       The node ids of the path.
+     * @param length     The number of nodes of the path.
+     */
+    public void write(int pathNumber, int[] path, int length) throws IOException {
+        List<String> assertions = new ArrayList<>();
+        List<String> extras = new ArrayList<>();
+        List<String> extraConstants = new ArrayList<>();
+
+        for (int i = 0; i < length; i++) {
+            if (i > 0 && constraints.trueSuccessor(path[i - 1]) >= 0) {
+                String condition = terms.condition(constraints.statement(path[i - 1]), path[i] == constraints.trueSuccessor(path[i - 1]));
+                if (condition != null)
+                    assertions.add(condition);
+            }
+
+            Statement statement = constraints.statement(path[i]);
+            int assigned = statement.getAssigned();
+            if (assigned < 0) continue;
+
+            // The value is built with the current versions, before the assigned variable gets a new one.
+            String value = terms.assignedValue(statement);
+
+            versions[assigned]++;
+            String constant = constant(assigned);
+            if (value != null)
+                assertions.add(String.format("(= %s %s)", constant, value));
+            if (statement.getExtraName() != null) {
+                extras.add(String.format("%s (%s) %s", statement.getExtraName(), statement.getExtraType(), constant));
+                extraConstants.add(constant);
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            int assigned = constraints.statement(path[i]).getAssigned();
+            if (assigned >= 0) versions[assigned] = 0;
+        }
+
+        writer.write(String.format("; path_%d: %s\n", pathNumber, String.join(" | ", extras)));
+        writer.write("(push 1)\n");
+        for (String assertion : assertions)
+            writer.write(String.format("(assert %s)\n", assertion));
+        writer.write(String.format("(echo \"path_%d\")\n", pathNumber));
+        writer.write("(check-sat)\n");
+        if (!extraConstants.isEmpty())
+            writer.write(String.format("(get-value (%s))\n", String.join(" ", extraConstants)));
+        writer.write("(pop 1)\n\n");
+    }
+
+    /**
+     * @return The constant of the current version of a variable.
+     */
+    private String constant(int variable) {
+        return constraints.versionName(variable, versions[variable]);
+    }
+}
@@ -0,0 +1,179 @@
+package org.IntentSymbolicExecution;
+
+import org.IntentSymbolicExecution.ControlFlowGraph.GraphNode;
+
+import java.util.*;
+import java.util.regex.Matcher;
+
+import static org.IntentSymbolicExecution.RegexUtils.*;
+
+/**
+ * Versions the variables of the paths of a {@link PathGraph}, so that every assignment in a path defines a new name.
+ * <p>
+ * The code line of every node is parsed once, when the graph is built, into a template: the text between the
+ * variables, and for each variable occurrence its index and whether it is the assigned variable or a use. Renaming a
+ * path is then a lookup: a single walk keeps the current version of each variable in an int array and fills the
+ * templates, without regular expressions.
+ * <p>
+ * The names are the ones of the previous per-path renaming. The n-th assignment of {@code $r2} in a path is named
+ * {@code r2_n}, and uses refer to the last assignment before them. In the assigning line itself they refer to the
+ * previous version, {@code r2_0} if there is none. Uses of a variable not yet assigned in the path keep their original
+ * name. The goto target of a branch and the content of string literals are never renamed.
+ */
+public class VariableVersioning {
+
+    /**
+     * Kinds of variable occurrences in a template.
+     */
+    private static final int DEFINITION = 0;
+    private static final int USE = 1;
+    private static final int USE_OF_DEFINED = 2;
+
+    private final PathGraph graph;
+
+    /**
+     * Template of each node of the graph, by node id.
+     */
+    private final Template[] templates;
+    private final int variableCount;
+
+    /**
+     * Parses the code line of every node of the graph.
+     *
+     * @param graph The graph whose paths are renamed.
+     */
+    public VariableVersioning(PathGraph graph) {
+        this.graph = graph;
+
+        // Only assigned variables are versioned.
+        Map<String, Integer> variables = new HashMap<>();
+        for (int node = 0; node < graph.size(); node++) {
+            String definition = definedVariable(graph.node(node).getValue());
+            if (definition != null)
+                variables.putIfAbsent(definition, variables.size());
+        }
+        variableCount = variables.size();
+
+        // Nodes copied by the loop unrolling share their GraphNode, and their template.
+        Map<GraphNode, Template> parsed = new IdentityHashMap<>();
+        templates = new Template[graph.size()];
+        for (int node = 0; node < graph.size(); node++)
+            templates[node] = parsed.computeIfAbsent(graph.node(node), n -> new Template(n.getValue(), variables));
+    }
+
+    /**
+     * Renames the variables of a path.
+     *
+     * @param path   The node ids of the path.
+     * @param length The number of nodes of the path.
+     * @return The nodes of the path with their renamed code lines, keeping the original keys.
+     */
+    public List<GraphNode> rename(int[] path, int length) {
+        int[] versions = new int[variableCount];
+        List<GraphNode> renamedPath = new ArrayList<>(length);
+        StringBuilder line = new StringBuilder();
+
+        for (int i = 0; i < length; i++) {
+            Template template = templates[path[i]];
+            int previousVersion = 0;
+            if (template.definition >= 0)
+                previousVersion = versions[template.definition]++;
+
+            line.setLength(0);
+            for (int slot = 0; slot < template.variables.length; slot++) {
+                line.append(template.text[slot]);
+                int variable = template.variables[slot];
+                switch (template.kinds[slot]) {
+                    case DEFINITION:
+                        line.append(template.names[slot]).append('_').append(versions[variable]);
+                        break;
+                    case USE_OF_DEFINED:
+                        line.append(template.names[slot]).append('_').append(previousVersion);
+                        break;
+                    default:
+                        if (versions[variable] > 0)
+                            line.append(template.names[slot]).append('_').append(versions[variable]);
+                        else
+                            line.append(template.tokens[slot]);
+                }
+            }
+            line.append(template.text[template.variables.length]);
+
+            renamedPath.add(new GraphNode(graph.node(path[i]).getKey(), line.toString()));
+        }
+        return renamedPath;
+    }
+
+    /**
+     * @param codeLine A code line.
+     * @return The name (without '$') of the variable assigned by the line, or null if it assigns none.
+     */
+    public static String definedVariable(String codeLine) {
+        Matcher matcher = assignationPattern.matcher(codeLine);
+        if (!matcher.find()) return null;
+        String variable = matcher.group("assignation").replace("$", "");
+        if (variable.equals("null") || !variable.matches("\\w+")) return null; // e.g. null (void) = method...
+        return variable;
+    }
+
+    /**
+     * A code line split around its variable occurrences: {@code text[0] var[0] text[1] ... var[n-1] text[n]}.
+     */
+    private static class Template {
+        private final String[] text;
+        private final int[] variables;
+        private final int[] kinds;
+        private final String[] tokens;
+        private final String[] names;
+        private final int definition;
+
+        Template(String codeLine, Map<String, Integer> variableIndex) {
+            String definedName = definedVariable(codeLine);
+            definition = definedName == null ? -1 : variableIndex.get(definedName);
+
+            // Only the condition of a branch is renamed, not its target.
+            int end = codeLine.contains(" goto ") ? codeLine.indexOf(" goto ") : codeLine.length();
+
+            BitSet literals = new BitSet();
+            Matcher literalMatcher = stringLiteralPattern.matcher(codeLine);
+            while (literalMatcher.find())
+                literals.set(literalMatcher.start(), literalMatcher.end());
+
+            List<String> textList = new ArrayList<>();
+            List<int[]> occurrences = new ArrayList<>(); // {variable, kind, start, end}
+            int last = 0;
+            Matcher tokenMatcher = localTokenPattern.matcher(codeLine).region(0, end);
+            while (tokenMatcher.find()) {
+                if (literals.get(tokenMatcher.start())) continue;
+                if (codeLine.startsWith(")this", tokenMatcher.end())) continue;
+
+                String token = tokenMatcher.group();
+                String name = token.startsWith("$") ? token.substring(1) : token;
+                Integer variable = variableIndex.get(name);
+                if (variable == null) continue;
+
+                int kind = USE;
+                if (variable == definition)
+                    kind = tokenMatcher.start() == 0 && occurrences.isEmpty() ? DEFINITION : USE_OF_DEFINED;
+
+                textList.add(codeLine.substring(last, tokenMatcher.start()));
+                occurrences.add(new int[]{variable, kind, tokenMatcher.start(), tokenMatcher.end()});
+                last = tokenMatcher.end();
+            }
+            textList.add(codeLine.substring(last));
+
+            text = textList.toArray(new String[0]);
+            variables = new int[occurrences.size()];
+            kinds = new int[occurrences.size()];
+            tokens = new String[occurrences.size()];
+            names = new String[occurrences.size()];
+            for (int i = 0; i < occurrences.size(); i++) {
+                int[] occurrence = occurrences.get(i);
+                variables[i] = occurrence[0];
+                kinds[i] = occurrence[1];
+                tokens[i] = codeLine.substring(occurrence[2], occurrence[3]);
+                names[i] = tokens[i].startsWith("$") ? tokens[i].substring(1) : tokens[i];
+            }
+        }
+    }
+}
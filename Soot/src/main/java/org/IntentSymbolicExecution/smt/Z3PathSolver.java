@@ -0,0 +1,307 @@
+package org.IntentSymbolicExecution.smt;
+
+import com.microsoft.z3.*;
+import org.IntentSymbolicExecution.PathConstraints;
+import org.IntentSymbolicExecution.PathConstraints.Kind;
+import org.IntentSymbolicExecution.PathConstraints.Statement;
+import org.IntentSymbolicExecution.PathGraph;
+import org.IntentSymbolicExecution.PathSolver;
+
+import java.util.*;
+
+/**
+ * {@link PathSolver} on the Z3 Java bindings.
+ * <p>
+ * The statements are parsed by {@link PathConstraints}: each assignment defines a new constant {@code name_n}, equal
+ * to the assigned value when it is understood and unconstrained otherwise. Strings are null when equal to
+ * {@code "null"}, as in the Z3 solver script.
+ * <p>
+ * The assertions of the nodes between two Intent-related branches are kept aside and only given to the solver, in a
+ * new frame with the condition of the edge taken, when the next branch is entered. Leaving the branch pops the frame,
+ * so the shared prefix of the following paths is not asserted again.
+ */
+public class Z3PathSolver implements PathSolver {
+
+    private final PathConstraints constraints;
+    private final Context context = new Context();
+    private final Solver solver = context.mkSolver();
+    private final Sort objectSort;
+    private final Expr<?> nullObject;
+
+    /**
+     * State of the current path: the version of each variable, the assertions of the path, the number of them
+     * already given to the solver and the extras read.
+     */
+    private final int[] versions;
+    private final List<BoolExpr> assertions = new ArrayList<>();
+    private int flushed = 0;
+    private final List<Extra> extras = new ArrayList<>();
+    private int[] versionTrail = new int[64];
+    private int versionTrailSize = 0;
+
+    /**
+     * Marks of the state before each node of the path.
+     */
+    private int[][] marks = new int[64][];
+    private int depth = 0;
+
+    /**
+     * Parses the code line of every node of the graph.
+     *
+     * @param graph The graph whose paths are solved.
+     */
+    public Z3PathSolver(PathGraph graph) {
+        this.constraints = new PathConstraints(graph);
+        this.objectSort = context.mkUninterpretedSort("Object");
+        this.nullObject = context.mkConst("null_object", objectSort);
+        this.versions = new int[constraints.variableCount()];
+    }
+
+    @Override
+    public boolean enter(int previous, int node) {
+        int[] mark = {assertions.size(), flushed, extras.size(), versionTrailSize, 0};
+
+        if (previous >= 0 && constraints.trueSuccessor(previous) >= 0) {
+            BoolExpr condition = condition(constraints.statement(previous), node == constraints.trueSuccessor(previous));
+            if (condition != null) {
+                solver.push();
+                for (int i = flushed; i < assertions.size(); i++)
+                    solver.add(assertions.get(i));
+                solver.add(condition);
+                flushed = assertions.size();
+                mark[4] = 1;
+                if (solver.check() == Status.UNSATISFIABLE) {
+                    solver.pop();
+                    flushed = mark[1];
+                    return false;
+                }
+            }
+        }
+        execute(constraints.statement(node));
+
+        if (depth == marks.length)
+            marks = Arrays.copyOf(marks, depth * 2);
+        marks[depth++] = mark;
+        return true;
+    }
+
+    @Override
+    public void leave() {
+        int[] mark = marks[--depth];
+        if (mark[4] == 1)
+            solver.pop();
+        assertions.subList(mark[0], assertions.size()).clear();
+        flushed = mark[1];
+        extras.subList(mark[2], extras.size()).clear();
+        while (versionTrailSize > mark[3])
+            versions[versionTrail[--versionTrailSize]]--;
+    }
+
+    @Override
+    public String model() {
+        solver.push();
+        try {
+            for (int i = flushed; i < assertions.size(); i++)
+                solver.add(assertions.get(i));
+            if (solver.check() != Status.SATISFIABLE)
+                return null;
+
+            Model model = solver.getModel();
+            StringJoiner values = new StringJoiner(" | ");
+            for (Extra extra : extras) {
+                Expr<?> value = model.getConstInterp(extra.constant);
+                String text;
+                if (value == null)
+                    text = "[no lim]";
+                else if (constraints.kind(extra.variable) == Kind.BOOL)
+                    text = value.isTrue() ? "True" : "False";
+                else if (constraints.kind(extra.variable) == Kind.STRING && value.toString().equals("\"null\""))
+                    text = "[null]";
+                else
+                    text = value.toString();
+                values.add(String.format("%s (%s) : %s", extra.name, extra.type, text));
+            }
+            return values.toString();
+        } finally {
+            solver.pop();
+        }
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    /**
+     * Adds the assertion of an assignment, with a new version of the assigned variable.
+     */
+    private void execute(Statement statement) {
+        int assigned = statement.getAssigned();
+        if (assigned < 0) return;
+
+        // The value is built with the current versions, before the assigned variable gets a new one.
+        Expr<?> value = statement.getValue() != null ? value(statement.getValue(), constraints.kind(assigned)) : null;
+        if (statement.getComparedLeft() != null && constraints.kind(assigned) == Kind.BOOL)
+            value = equality(statement.getComparedLeft(), statement.getComparedRight(), true);
+        if (statement.getArithmetic() != null)
+            value = arithmetic(statement);
+
+        if (versionTrailSize == versionTrail.length)
+            versionTrail = Arrays.copyOf(versionTrail, versionTrailSize * 2);
+        versionTrail[versionTrailSize++] = assigned;
+        versions[assigned]++;
+
+        Expr<?> constant = constant(assigned);
+        if (value != null)
+            assertions.add(eq(constant, value));
+        if (statement.getExtraName() != null)
+            extras.add(new Extra(statement.getExtraName(), statement.getExtraType(), assigned, constant));
+    }
+
+    /**
+     * @return The condition of a branch, or its negation, or null if it is not understood.
+     */
+    private BoolExpr condition(Statement branch, boolean outcome) {
+        BoolExpr condition;
+        switch (branch.getOperator()) {
+            case "==":
+            case "!=":
+                condition = equality(branch.getLeft(), branch.getRight(), branch.getOperator().equals("=="));
+                break;
+            default:
+                condition = comparison(branch.getLeft(), branch.getOperator(), branch.getRight());
+        }
+        if (condition == null) return null;
+        return outcome ? condition : context.mkNot(condition);
+    }
+
+    /**
+     * @return {@code left == right} (or {@code !=}), with booleans compared to 0 and 1 as in Jimple, or null if the
+     * sides have different sorts.
+     */
+    private BoolExpr equality(String left, String right, boolean equal) {
+        Kind kind = constraints.kindOf(left);
+        if (kind == null) kind = constraints.kindOf(right);
+        if (kind == null) return null;
+        Expr<?> a = value(left, kind);
+        Expr<?> b = value(right, kind);
+        if (a == null || b == null) return null;
+        BoolExpr equality = eq(a, b);
+        return equal ? equality : context.mkNot(equality);
+    }
+
+    @SuppressWarnings("unchecked")
+    private BoolExpr comparison(String left, String operator, String right) {
+        Kind kind = constraints.kindOf(left);
+        if (kind == null) kind = constraints.kindOf(right);
+        if (kind != Kind.INT && kind != Kind.REAL) return null;
+        Expr<? extends ArithSort> a = (Expr<? extends ArithSort>) value(left, kind);
+        Expr<? extends ArithSort> b = (Expr<? extends ArithSort>) value(right, kind);
+        if (a == null || b == null) return null;
+        switch (operator) {
+            case "<":
+                return context.mkLt(a, b);
+            case "<=":
+                return context.mkLe(a, b);
+            case ">":
+                return context.mkGt(a, b);
+            default:
+                return context.mkGe(a, b);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Expr<?> arithmetic(Statement statement) {
+        Kind kind = constraints.kind(statement.getAssigned());
+        if (kind != Kind.INT && kind != Kind.REAL) return null;
+        Expr<? extends ArithSort> a = (Expr<? extends ArithSort>) value(statement.getArithmeticLeft(), kind);
+        Expr<? extends ArithSort> b = (Expr<? extends ArithSort>) value(statement.getArithmeticRight(), kind);
+        if (a == null || b == null) return null;
+        switch (statement.getArithmetic()) {
+            case "+":
+                return context.mkAdd(a, b);
+            case "-":
+                return context.mkSub(a, b);
+            case "*":
+                return context.mkMul(a, b);
+            case "/":
+                return context.mkDiv(a, b);
+            default:
+                return kind == Kind.INT ? context.mkMod((Expr<IntSort>) a, (Expr<IntSort>) b) : null;
+        }
+    }
+
+    /**
+     * @param operand A variable or a literal.
+     * @param kind    The sort expected.
+     * @return The term of the operand, or null if it does not have the sort.
+     */
+    private Expr<?> value(String operand, Kind kind) {
+        Integer variable = constraints.variable(operand);
+        if (variable != null)
+            return constraints.kind(variable) == kind ? constant(variable) : null;
+
+        if (operand.equals("null")) {
+            if (kind == Kind.STRING) return context.mkString("null");
+            return kind == Kind.OBJECT ? nullObject : null;
+        }
+        if (PathConstraints.isString(operand))
+            return kind == Kind.STRING ? context.mkString(PathConstraints.unquote(operand)) : null;
+        if (PathConstraints.isNumber(operand)) {
+            long number = Long.parseLong(operand.replace("L", ""));
+            switch (kind) {
+                case INT:
+                    return context.mkInt(number);
+                case REAL:
+                    return context.mkReal(number);
+                case BOOL:
+                    return context.mkBool(number != 0);
+                default:
+                    return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The constant of the current version of a variable: {@code name_n}, or {@code name} if it was not
+     * assigned on the path.
+     */
+    private Expr<?> constant(int variable) {
+        String name = constraints.versionName(variable, versions[variable]);
+        switch (constraints.kind(variable)) {
+            case INT:
+                return context.mkIntConst(name);
+            case REAL:
+                return context.mkRealConst(name);
+            case BOOL:
+                return context.mkBoolConst(name);
+            case STRING:
+                return context.mkConst(name, context.getStringSort());
+            default:
+                return context.mkConst(name, objectSort);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private BoolExpr eq(Expr<?> a, Expr<?> b) {
+        return context.mkEq((Expr) a, (Expr) b);
+    }
+
+    /**
+     * An Intent extra read on the path: its name, its type as written in the results and its constant.
+     */
+    private static class Extra {
+        private final String name;
+        private final String type;
+        private final int variable;
+        private final Expr<?> constant;
+
+        Extra(String name, String type, int variable, Expr<?> constant) {
+            this.name = name;
+            this.type = type;
+            this.variable = variable;
+            this.constant = constant;
+        }
+    }
+}
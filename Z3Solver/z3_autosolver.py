@@ -1,6 +1,7 @@
 import time
 import re
 import os
+import json
 import networkx as nx
 import pygraphviz as pgv
 from z3 import Int, String, Bool, Real, Array, Solver, sat, Not, StringVal, DeclareSort, IntSort, StringSort, BoolSort, RealSort, SortRef, Const, Length, Implies, Or, And
@@ -81,6 +82,15 @@ INSTACEOF_PATTERN = re.compile(
     r'^(?P<variable>[\w\$]+)\s*=\s*(?P<object_name>[\w\$]+)\s+instanceof\s+(?P<full_class_name>[a-zA-Z_][\w\.$]*)$'
 )
 
+# Node and edge lines of the prefix tree format written with --output-format=tree.
+TREE_NODE_PATTERN = re.compile(
+    r'^\s*(n\d+) \[label="((?:[^"\\]|\\.)*)"(, color=blue)?(?:, path=(\d+))?\];$'
+)
+
+TREE_EDGE_PATTERN = re.compile(
+    r'^\s*(n\d+) -> (n\d+)(?: \[label="(\w+)"\])?;$'
+)
+
 # Operators that have to be inverted if necessary
 INVERT_OPERATOR = ["<=", ">=", "<", ">"]
 # Inverted operator map
@@ -137,21 +147,82 @@ def reset_globals():
 
 def parse_dot_file(dot_path):
     """
-    Reads the DOT file and returns a dictionary of NetworkX directed graphs.
-    Each subgraph in the DOT file is assumed to represent a distinct path.
+    Reads the DOT file and returns its paths as (name, NetworkX directed graph) pairs.
+    Each subgraph in the DOT file is assumed to represent a distinct path, unless the file
+    is written as a prefix tree, which is then walked lazily.
     """
+    if is_path_tree(dot_path):
+        return iter_path_tree(dot_path)
     A = pgv.AGraph(dot_path)
-    return {sub.name: nx.DiGraph(sub) for sub in A.subgraphs()}
+    return [(sub.name, nx.DiGraph(sub)) for sub in A.subgraphs()]
+
+def is_path_tree(dot_path):
+    """
+    Checks the DOT file header for the prefix tree format ("# format: tree").
+    """
+    with open(dot_path, "r", encoding="utf-8") as file:
+        for line in file:
+            if not line.startswith("#"):
+                return False
+            if re.match(r"#\s*format:\s*tree\s*$", line):
+                return True
+    return False
+
+def iter_path_tree(dot_path):
+    """
+    Walks a DOT file written as a prefix tree and yields one (name, graph) pair per path.
+    The file is a pre-order walk of the tree: each node follows the edge from its parent,
+    so the current path is kept on a stack and a path is complete when its leaf (the node
+    with the "path" attribute) is read.
+    """
+    stack = []  # (node, attributes, label of the edge from the parent)
+    edge_label = None
+    has_parent = False
+    with open(dot_path, "r", encoding="utf-8") as file:
+        for line in file:
+            match = TREE_EDGE_PATTERN.match(line)
+            if match:
+                parent, _, edge_label = match.groups()
+                while stack and stack[-1][0] != parent:
+                    stack.pop()
+                has_parent = True
+                continue
+
+            match = TREE_NODE_PATTERN.match(line)
+            if not match:
+                continue
+            node, label, blue, path_number = match.groups()
+            if not has_parent:
+                stack.clear()
+            attributes = {"label": re.sub(r"\\(.)", r"\1", label)}
+            if blue:
+                attributes["color"] = "blue"
+            stack.append((node, attributes, edge_label if has_parent else None))
+            has_parent = False
+
+            if path_number:
+                graph = nx.DiGraph()
+                previous = None
+                for tree_node, tree_attributes, tree_edge_label in stack:
+                    graph.add_node(tree_node, **tree_attributes)
+                    if previous is not None:
+                        if tree_edge_label:
+                            graph.add_edge(previous, tree_node, label=tree_edge_label)
+                        else:
+                            graph.add_edge(previous, tree_node)
+                    previous = tree_node
+                yield f"path_{path_number}", graph
 
 def extract_metadata(dot_path):
     """
-    Extracts package, activity, and action from the DOT file header.
+    Extracts package, activity, and action from the DOT file header, with all the actions,
+    categories and data of the intent filters of the activity when it declares them.
     """
     metadata = {}
     with open(dot_path, "r", encoding="utf-8") as file:
         for line in file:
             if line.startswith("#"):
-                match = re.match(r"#\s*(apkFile|sdkVersion|package|activity|action):\s*(.+)", line)
+                match = re.match(r"#\s*(apkFile|sdkVersion|package|activity|actions|action|categories|data):\s*(.+)", line)
                 if match:
                     key, value = match.groups()
                     metadata[key] = value.strip()
@@ -159,6 +230,37 @@ def extract_metadata(dot_path):
                 return metadata
     return metadata
 
+def load_solved_paths(dot_path):
+    """
+    Reads the paths solved without Z3 by the analyzer (--fast-path), from the "_solved.json"
+    file next to the DOT file. Returns a dictionary from path name to its result line, in the
+    format of the lines written for the paths solved here, or None for unsatisfiable paths.
+    """
+    solved_path = os.path.splitext(dot_path)[0] + "_solved.json"
+    if not os.path.isfile(solved_path):
+        return {}
+    with open(solved_path, "r", encoding="utf-8") as file:
+        solved = json.load(file)
+
+    lines = {}
+    for path in solved["paths"]:
+        if not path["satisfiable"]:
+            lines[path["path"]] = None
+            continue
+        param_strings = []
+        for extra in path["extras"]:
+            if "value" not in extra:
+                value_str = "[no lim]"
+            elif extra["value"] is None:
+                value_str = "[null]"
+            elif isinstance(extra["value"], str):
+                value_str = json.dumps(extra["value"])
+            else:
+                value_str = str(extra["value"])
+            param_strings.append(f"{extra['name']} ({extra['type']}) : {value_str}")
+        lines[path["path"]] = " | ".join(param_strings)
+    return lines
+
 def create_z3_custom_object(name):
     name = name.replace("$", "")
     if name not in custom_types:
@@ -803,11 +905,25 @@ def main():
                 print(f"Error parsing DOT file: {e}")
                 continue
 
+            # Paths already solved by the analyzer, only the residual ones need Z3
+            solved_paths = load_solved_paths(dot_path)
+
             # Analyze each path subgraph
-            for idx, path_name in enumerate(subgraphs, start=1):
+            for idx, (path_name, path_graph) in enumerate(subgraphs, start=1):
                 total_paths += 1
-                parse_intent_params(subgraphs[path_name])
-                parse_if(subgraphs[path_name])
+                if path_name in solved_paths:
+                    line = solved_paths[path_name]
+                    if line is None:
+                        print(f"{path_name}: No solution")
+                    else:
+                        if line not in seen_lines:
+                            seen_lines.add(line)
+                            output_file.write(f"{line}\n")
+                        print(line)
+                    print("-" * 50)
+                    continue
+                parse_intent_params(path_graph)
+                parse_if(path_graph)
                 parameters = intent_params | if_parameters | array_params
 
                 print(path_name)